@@ -67,4 +67,22 @@ public interface Game extends Disposable {
      * @since 1.0
      */
     void render(GameWindow window, Graphics graphics);
+
+    /**
+     * This method is called when the application should render a frame.
+     * When the window uses {@link LoopMode#FIXED}, <code>alpha</code> is the fraction
+     * of a fixed step that has passed since the last update, which can be used to
+     * interpolate between the previous and current state. Otherwise it is 1.
+     *
+     * By default, this calls {@link #render(GameWindow, Graphics)}.
+     *
+     * @param window the window associated with this game
+     * @param graphics a graphics object to be used for rendering
+     * @param alpha how far the current time is between the last update and the next, from 0 to 1
+     * @see LoopMode
+     * @since 1.0
+     */
+    default void render(GameWindow window, Graphics graphics, double alpha) {
+        render(window, graphics);
+    }
 }
@@ -72,6 +72,35 @@ public interface GameWindow {
         return gameWindow;
     }
 
+    /**
+     * Creates a new GameWindow of the provided type that renders the provided game.
+     * This allows a specific implementation, such as one that renders offscreen,
+     * to be chosen when several are present.
+     *
+     * @param game the game to be rendered.
+     * @param type the type of GameWindow to create
+     * @param <T> the type of GameWindow
+     * @return the new GameWindow instance
+     * @throws NullPointerException if game or type is <code>null</code>
+     * @throws SJGFException if no implementation of the provided type is found.
+     * @since 1.0
+     */
+    static <T extends GameWindow> T create(Game game, Class<T> type) {
+        Args.notNull(game, "game");
+        Args.notNull(type, "type");
+        Optional<T> optionalWindow = ServiceLoader.load(GameWindow.class).stream()
+                .filter(provider -> type.isAssignableFrom(provider.type()))
+                .map(provider -> type.cast(provider.get()))
+                .findFirst();
+        if (!optionalWindow.isPresent())
+            throw new SJGFException("No implementation of " + type.getName());
+
+        T gameWindow = optionalWindow.get();
+        gameWindow.setGame(game);
+
+        return gameWindow;
+    }
+
     /**
      * Adds a provided listener to the active listeners.
      *
@@ -311,6 +340,86 @@ public interface GameWindow {
      */
     ResourceLoader<Texture> getTextureLoader();
 
+    /**
+     * Returns how this window advances its game between frames.
+     *
+     * @return the loop mode of this window
+     * @see #setLoopMode(LoopMode)
+     * @since 1.0
+     */
+    LoopMode getLoopMode();
+
+    /**
+     * Sets how this window advances its game between frames.
+     *
+     * @param mode the new loop mode
+     * @throws NullPointerException if mode is <code>null</code>
+     * @see #getLoopMode()
+     * @see LoopMode
+     * @since 1.0
+     */
+    void setLoopMode(LoopMode mode);
+
+    /**
+     * Returns the length of a single update, in seconds, when using {@link LoopMode#FIXED}.
+     *
+     * @return the length of a fixed update step
+     * @see #setFixedStep(double)
+     * @since 1.0
+     */
+    double getFixedStep();
+
+    /**
+     * Sets the length of a single update, in seconds, when using {@link LoopMode#FIXED}.
+     *
+     * @param step the length of a fixed update step
+     * @throws IllegalArgumentException if step is not positive
+     * @see #getFixedStep()
+     * @since 1.0
+     */
+    void setFixedStep(double step);
+
+    /**
+     * Returns the most updates that will run in one frame when using {@link LoopMode#FIXED}.
+     *
+     * @return the most updates per frame
+     * @see #setMaxUpdatesPerFrame(int)
+     * @since 1.0
+     */
+    int getMaxUpdatesPerFrame();
+
+    /**
+     * Sets the most updates that will run in one frame when using {@link LoopMode#FIXED}.
+     * If a frame falls further behind than this, the remaining time is dropped
+     * so that the game slows down instead of never catching up.
+     *
+     * @param maxUpdates the most updates per frame
+     * @throws IllegalArgumentException if maxUpdates is not positive
+     * @see #getMaxUpdatesPerFrame()
+     * @since 1.0
+     */
+    void setMaxUpdatesPerFrame(int maxUpdates);
+
+    /**
+     * Returns the number of frames per second this window is limited to.
+     *
+     * @return the target frame rate, or 0 if unlimited
+     * @see #setTargetFps(int)
+     * @since 1.0
+     */
+    int getTargetFps();
+
+    /**
+     * Limits this window to the provided number of frames per second. Time left
+     * over in a frame is slept away rather than spent spinning.
+     *
+     * @param fps the target frame rate, or 0 for no limit
+     * @throws IllegalArgumentException if fps is negative
+     * @see #getTargetFps()
+     * @since 1.0
+     */
+    void setTargetFps(int fps);
+
     /**
      * Starts this window's game. This method initializes OpenGL and starts this
      * window's game.
@@ -0,0 +1,56 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf;
+
+/**
+ * Controls how a {@link GameWindow} advances its game between frames.
+ *
+ * @author Patrick Barron
+ * @see GameWindow#setLoopMode(LoopMode)
+ * @since 1.0
+ */
+public enum LoopMode {
+
+    /**
+     * The game is updated once per frame with the time that passed since the
+     * previous frame.
+     *
+     * @since 1.0
+     */
+    VARIABLE,
+
+    /**
+     * The game is updated in fixed steps of {@link GameWindow#getFixedStep()} seconds,
+     * as many times per frame as the time that passed requires, up to
+     * {@link GameWindow#getMaxUpdatesPerFrame()}. Rendering receives how far the
+     * leftover time is into the next step, so it can interpolate between states.
+     *
+     * @since 1.0
+     */
+    FIXED,
+
+    /**
+     * The game is updated in fixed steps, as with {@link #FIXED}, but on a thread of its
+     * own, so that simulating the next frame overlaps with rendering the current one.
+     * The game must be a {@link PipelinedGame}; frames are rendered from its latest
+     * snapshot. Other games are run as if {@link #FIXED} were selected.
+     *
+     * @see PipelinedGame
+     * @since 1.0
+     */
+    PIPELINED
+}
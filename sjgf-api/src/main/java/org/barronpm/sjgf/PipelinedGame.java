@@ -0,0 +1,78 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf;
+
+import org.barronpm.sjgf.draw.Graphics;
+
+/**
+ * A game whose updates can run on their own thread, overlapping with rendering.
+ *
+ * When its window uses {@link LoopMode#PIPELINED}, {@link #update(GameWindow, double)}
+ * and {@link #snapshot()} are called on a dedicated update thread, while
+ * {@link #render(GameWindow, Graphics, Object, double)} is called on the rendering
+ * thread with the latest snapshot. A snapshot must therefore hold everything
+ * needed to draw a frame, and must not be changed by later updates; either
+ * create a new immutable snapshot after each update or alternate between
+ * buffers. Events are still delivered on the rendering thread.
+ *
+ * The window handed to {@link #update(GameWindow, double)} on the update thread
+ * is the game's real window, and windowing systems only allow a window to be
+ * queried or changed from the thread that created it. From an update, call
+ * nothing on the window but {@link GameWindow#close()}; read its size,
+ * position and other properties in {@link #render(GameWindow, Graphics, Object, double)}
+ * or an event listener instead, and hand them to the game's own state.
+ *
+ * In any other loop mode, updating and rendering happen on the same thread and
+ * each frame renders a fresh snapshot.
+ *
+ * @param <S> the type of the render snapshot
+ * @author Patrick Barron
+ * @see LoopMode#PIPELINED
+ * @since 1.0
+ */
+public interface PipelinedGame<S> extends Game {
+
+    /**
+     * Captures the state needed to render the game as it is after the latest update.
+     *
+     * @return a snapshot of the game's state
+     * @since 1.0
+     */
+    S snapshot();
+
+    /**
+     * This method is called when the application should render a frame from a snapshot.
+     *
+     * @param window the window associated with this game
+     * @param graphics a graphics object to be used for rendering
+     * @param snapshot the latest snapshot of the game's state
+     * @param alpha how far the current time is between the snapshot's update and the next, from 0 to 1
+     * @see Game#render(GameWindow, Graphics, double)
+     * @since 1.0
+     */
+    void render(GameWindow window, Graphics graphics, S snapshot, double alpha);
+
+    @Override
+    default void render(GameWindow window, Graphics graphics, double alpha) {
+        render(window, graphics, snapshot(), alpha);
+    }
+
+    @Override
+    default void render(GameWindow window, Graphics graphics) {
+        render(window, graphics, 1);
+    }
+}
@@ -17,6 +17,7 @@
 package org.barronpm.sjgf;
 
 import java.io.File;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * A ResourceLoader loads resources from files
@@ -35,4 +36,25 @@ public interface ResourceLoader<T> {
      * @since 1.0
      */
     T load(File file);
+
+    /**
+     * Loads a resource from the provided file without blocking the caller until it
+     * is ready, where the loader supports it. The returned future completes with
+     * the resource, or exceptionally if it could not be loaded.
+     *
+     * By default, the resource is loaded immediately with {@link #load(File)}.
+     *
+     * @param file the file to load from
+     * @return a future that completes with the loaded resource.
+     * @since 1.0
+     */
+    default CompletableFuture<T> loadAsync(File file) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            future.complete(load(file));
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
 }
@@ -16,8 +16,11 @@
 
 package org.barronpm.sjgf.draw;
 
+import org.barronpm.sjgf.math.Matrix4;
 import org.barronpm.sjgf.math.Vector3;
 
+import java.nio.FloatBuffer;
+
 /**
  * A Camera projects coordinates from world space to screen space.
  *
@@ -27,6 +30,27 @@ import org.barronpm.sjgf.math.Vector3;
  */
 public interface Camera {
 
+    /**
+     * Returns the matrix that projects coordinates from world space to screen space.
+     * The returned matrix reflects the current state of this camera and may be
+     * modified by it later, so it should not be retained.
+     *
+     * @return the projection matrix of this camera.
+     */
+    Matrix4 getProjection();
+
+    /**
+     * Returns a count that changes whenever the projection of this camera changes.
+     * Renderers that project queued vertices later compare it to know when the
+     * vertices queued so far must be drawn first. Cameras whose projection never
+     * changes may keep the default, which always returns 0.
+     *
+     * @return the modification count of this camera.
+     */
+    default long getModificationCount() {
+        return 0;
+    }
+
     /**
      * Projects a coordinate onto screen space.
      *
@@ -55,6 +79,49 @@ public interface Camera {
      */
     Vector3 project(float x, float y, float z);
 
+    /**
+     * Projects a coordinate onto screen space without allocating.
+     * The projected x, y, and z are stored in three consecutive elements of
+     * <code>out</code>, starting at <code>offset</code>.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param z the z coordinate
+     * @param out the array to store the result in
+     * @param offset the index of the first element to store
+     * @return <code>out</code>
+     */
+    default float[] project(float x, float y, float z, float[] out, int offset) {
+        return getProjection().mult(x, y, z, out, offset);
+    }
+
+    /**
+     * Projects a coordinate onto screen space without allocating.
+     * The projected x, y, and z are put into the buffer at its current position,
+     * advancing it by three.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param z the z coordinate
+     * @param out the buffer to store the result in
+     * @return <code>out</code>
+     */
+    default FloatBuffer project(float x, float y, float z, FloatBuffer out) {
+        return getProjection().mult(x, y, z, out);
+    }
+
+    /**
+     * Projects a number of packed x, y, z coordinates onto screen space.
+     * <code>in</code> and <code>out</code> may be the same array.
+     *
+     * @param in the coordinates to project
+     * @param out the array to store the results in
+     * @param count the number of coordinates to project
+     */
+    default void projectAll(float[] in, float[] out, int count) {
+        getProjection().multAll(in, out, count);
+    }
+
     /**
      * Projects a coordinate from screen space to world space.
      * This is the inverse of projecting from world space to screen space.
@@ -84,4 +151,67 @@ public interface Camera {
      * @return the projected coordinate.
      */
     Vector3 invertProject(float x, float y, float z);
+
+    /**
+     * Projects a coordinate from screen space to world space without allocating.
+     * The projected x, y, and z are stored in three consecutive elements of
+     * <code>out</code>, starting at <code>offset</code>.
+     * The default implementation goes through {@link #invertProject(Vector3, Vector3)},
+     * allocating a single vector.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param z the z coordinate
+     * @param out the array to store the result in
+     * @param offset the index of the first element to store
+     * @return <code>out</code>
+     */
+    default float[] invertProject(float x, float y, float z, float[] out, int offset) {
+        Vector3 projected = new Vector3(x, y, z);
+        invertProject(projected, projected);
+        out[offset] = projected.getX();
+        out[offset + 1] = projected.getY();
+        out[offset + 2] = projected.getZ();
+        return out;
+    }
+
+    /**
+     * Projects a coordinate from screen space to world space without allocating.
+     * The projected x, y, and z are put into the buffer at its current position,
+     * advancing it by three.
+     * The default implementation goes through {@link #invertProject(Vector3, Vector3)},
+     * allocating a single vector.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param z the z coordinate
+     * @param out the buffer to store the result in
+     * @return <code>out</code>
+     */
+    default FloatBuffer invertProject(float x, float y, float z, FloatBuffer out) {
+        Vector3 projected = new Vector3(x, y, z);
+        invertProject(projected, projected);
+        return out.put(projected.getX()).put(projected.getY()).put(projected.getZ());
+    }
+
+    /**
+     * Projects a number of packed x, y, z coordinates from screen space to world space.
+     * <code>in</code> and <code>out</code> may be the same array.
+     * The default implementation goes through {@link #invertProject(Vector3, Vector3)},
+     * reusing a single vector.
+     *
+     * @param in the coordinates to project
+     * @param out the array to store the results in
+     * @param count the number of coordinates to project
+     */
+    default void invertProjectAll(float[] in, float[] out, int count) {
+        Vector3 projected = new Vector3();
+        for (int i = 0; i < count * 3; i += 3) {
+            projected.set(in[i], in[i + 1], in[i + 2]);
+            invertProject(projected, projected);
+            out[i] = projected.getX();
+            out[i + 1] = projected.getY();
+            out[i + 2] = projected.getZ();
+        }
+    }
 }
\ No newline at end of file
@@ -19,6 +19,8 @@ package org.barronpm.sjgf.draw;
 import org.barronpm.sjgf.math.Matrix4;
 import org.barronpm.sjgf.math.Vector3;
 
+import java.nio.FloatBuffer;
+
 /**
  * An orthographic camera projects 3D coordinates onto a 2D plane.
  *
@@ -28,8 +30,9 @@ import org.barronpm.sjgf.math.Vector3;
  */
 public final class OrthographicCamera implements Camera {
 
-    private Matrix4 projection;
-    private Matrix4 inverseProjection;
+    private final Matrix4 projection = Matrix4.createIdentity();
+    private final Matrix4 inverseProjection = Matrix4.createIdentity();
+    private long modificationCount = 0;
 
     /**
      * Creates a new orthographic camera with the provided bounds
@@ -52,8 +55,19 @@ public final class OrthographicCamera implements Camera {
      * @param top the topmost coordinate
      */
     public void setViewport(float left, float right, float bottom, float top) {
-        projection = Matrix4.createOrtho(left, right, bottom, top);
-        inverseProjection = projection.invert();
+        projection.setToOrtho(left, right, bottom, top);
+        projection.invert(inverseProjection);
+        modificationCount++;
+    }
+
+    @Override
+    public Matrix4 getProjection() {
+        return projection;
+    }
+
+    @Override
+    public long getModificationCount() {
+        return modificationCount;
     }
 
     @Override
@@ -68,7 +82,23 @@ public final class OrthographicCamera implements Camera {
 
     @Override
     public Vector3 project(float x, float y, float z) {
-        return project(new Vector3(x, y, z));
+        Vector3 out = new Vector3(x, y, z);
+        return project(out, out);
+    }
+
+    @Override
+    public float[] project(float x, float y, float z, float[] out, int offset) {
+        return projection.mult(x, y, z, out, offset);
+    }
+
+    @Override
+    public FloatBuffer project(float x, float y, float z, FloatBuffer out) {
+        return projection.mult(x, y, z, out);
+    }
+
+    @Override
+    public void projectAll(float[] in, float[] out, int count) {
+        projection.multAll(in, out, count);
     }
 
     @Override
@@ -83,6 +113,22 @@ public final class OrthographicCamera implements Camera {
 
     @Override
     public Vector3 invertProject(float x, float y, float z) {
-        return invertProject(new Vector3(x, y, z));
+        Vector3 out = new Vector3(x, y, z);
+        return invertProject(out, out);
+    }
+
+    @Override
+    public float[] invertProject(float x, float y, float z, float[] out, int offset) {
+        return inverseProjection.mult(x, y, z, out, offset);
+    }
+
+    @Override
+    public FloatBuffer invertProject(float x, float y, float z, FloatBuffer out) {
+        return inverseProjection.mult(x, y, z, out);
+    }
+
+    @Override
+    public void invertProjectAll(float[] in, float[] out, int count) {
+        inverseProjection.multAll(in, out, count);
     }
 }
\ No newline at end of file
@@ -0,0 +1,155 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.draw;
+
+import org.barronpm.sjgf.util.Args;
+
+/**
+ * A rectangular part of another texture. Drawing a region draws only that
+ * part of its texture, which lets many images share a single texture, such
+ * as the pages of a texture atlas, and be drawn together.
+ *
+ * A region does not own its texture; disposing a region does nothing.
+ *
+ * @author Patrick Barron
+ * @see Texture
+ * @since 1.0
+ */
+public final class TextureRegion implements Texture {
+
+    private final Texture texture;
+    private final int x;
+    private final int y;
+    private final int width;
+    private final int height;
+
+    private final float u1;
+    private final float v1;
+    private final float u2;
+    private final float v2;
+
+    /**
+     * Creates a region of the provided texture. Coordinates are in pixels,
+     * measured from the bottom-left corner of the texture. If the texture is
+     * itself a region, the new region is relative to it.
+     *
+     * @param texture the texture containing the region
+     * @param x the x coordinate of the region's bottom-left corner
+     * @param y the y coordinate of the region's bottom-left corner
+     * @param width the width of the region
+     * @param height the height of the region
+     * @throws NullPointerException if texture is <code>null</code>
+     * @throws IllegalArgumentException if the region does not lie within the texture
+     * @since 1.0
+     */
+    public TextureRegion(Texture texture, int x, int y, int width, int height) {
+        Args.notNull(texture, "texture");
+        if (x < 0 || y < 0 || width < 0 || height < 0
+                || x + width > texture.getWidth() || y + height > texture.getHeight())
+            throw new IllegalArgumentException("Region must lie within the texture");
+
+        if (texture instanceof TextureRegion) {
+            TextureRegion parent = (TextureRegion) texture;
+            texture = parent.texture;
+            x += parent.x;
+            y += parent.y;
+        }
+
+        this.texture = texture;
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+
+        u1 = (float) x / texture.getWidth();
+        v1 = (float) y / texture.getHeight();
+        u2 = (float) (x + width) / texture.getWidth();
+        v2 = (float) (y + height) / texture.getHeight();
+    }
+
+    /**
+     * Returns the texture containing this region. This is never itself a region.
+     *
+     * @return the texture containing this region
+     * @since 1.0
+     */
+    public Texture getTexture() {
+        return texture;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the horizontal texture coordinate of this region's left edge.
+     *
+     * @return the left texture coordinate, from 0 to 1
+     * @since 1.0
+     */
+    public float getU1() {
+        return u1;
+    }
+
+    /**
+     * Returns the vertical texture coordinate of this region's bottom edge.
+     *
+     * @return the bottom texture coordinate, from 0 to 1
+     * @since 1.0
+     */
+    public float getV1() {
+        return v1;
+    }
+
+    /**
+     * Returns the horizontal texture coordinate of this region's right edge.
+     *
+     * @return the right texture coordinate, from 0 to 1
+     * @since 1.0
+     */
+    public float getU2() {
+        return u2;
+    }
+
+    /**
+     * Returns the vertical texture coordinate of this region's top edge.
+     *
+     * @return the top texture coordinate, from 0 to 1
+     * @since 1.0
+     */
+    public float getV2() {
+        return v2;
+    }
+
+    @Override
+    public void dispose() {
+    }
+}
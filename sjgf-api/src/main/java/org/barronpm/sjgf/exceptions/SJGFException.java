@@ -30,4 +30,8 @@ public class SJGFException extends RuntimeException {
     public SJGFException(String message) {
         super(message);
     }
+
+    public SJGFException(String message, Throwable cause) {
+        super(message, cause);
+    }
 }
@@ -16,11 +16,28 @@
 
 package org.barronpm.sjgf.math;
 
+import java.nio.FloatBuffer;
 import java.util.Arrays;
 
+/**
+ * A 3x3 matrix of floats, stored in a flat array in column-major order.
+ *
+ * Methods that modify a matrix do so in place and return it, so that calls
+ * can be chained without allocating intermediate matrices.
+ */
 public final class Matrix3 {
 
-    private final float[][] values;
+    private static final int M00 = 0;
+    private static final int M10 = 1;
+    private static final int M20 = 2;
+    private static final int M01 = 3;
+    private static final int M11 = 4;
+    private static final int M21 = 5;
+    private static final int M02 = 6;
+    private static final int M12 = 7;
+    private static final int M22 = 8;
+
+    private final float[] values = new float[9];
 
     public Matrix3(float[][] values) {
         // Ensure that values is a nonnull 3x3 array
@@ -31,33 +48,169 @@ public final class Matrix3 {
             throw new IllegalArgumentException("Must provide a 3x3 array");
         }
 
-        this.values = values;
+        for (int row = 0; row < 3; row++) {
+            for (int column = 0; column < 3; column++) {
+                this.values[column * 3 + row] = values[row][column];
+            }
+        }
+    }
+
+    /**
+     * Creates a matrix from 9 values in column-major order.
+     *
+     * @param values the values of the matrix
+     * @throws IllegalArgumentException if values does not have 9 elements
+     */
+    public Matrix3(float[] values) {
+        if (values == null || values.length != 9)
+            throw new IllegalArgumentException("Must provide 9 values");
+
+        System.arraycopy(values, 0, this.values, 0, 9);
+    }
+
+    public Matrix3(Matrix3 matrix) {
+        set(matrix);
     }
 
     private Matrix3() {
-        this.values = new float[3][3];
     }
 
     public static Matrix3 createIdentity() {
-        Matrix3 matrix = new Matrix3();
-        matrix.values[0][0] = 1;
-        matrix.values[1][1] = 1;
-        matrix.values[2][2] = 1;
-
-        return matrix;
+        return new Matrix3().setToIdentity();
     }
 
     public static Matrix3 createOrtho(int left, int right, int bottom, int top) {
+        return new Matrix3().setToOrtho(left, right, bottom, top);
+    }
+
+    public Matrix3 set(Matrix3 matrix) {
+        System.arraycopy(matrix.values, 0, values, 0, 9);
+        return this;
+    }
+
+    public Matrix3 setToIdentity() {
+        Arrays.fill(values, 0);
+        values[M00] = 1;
+        values[M11] = 1;
+        values[M22] = 1;
+        return this;
+    }
+
+    public Matrix3 setToOrtho(float left, float right, float bottom, float top) {
+        Arrays.fill(values, 0);
+        values[M00] = 2f / (right - left);
+        values[M02] = -(right + left) / (right - left);
+        values[M11] = 2f / (top - bottom);
+        values[M12] = -(top + bottom) / (top - bottom);
+        values[M22] = 1;
+        return this;
+    }
+
+    /**
+     * Returns the value at the provided row and column.
+     *
+     * @param row the row, from 0 to 2
+     * @param column the column, from 0 to 2
+     * @return the value at the row and column
+     */
+    public float get(int row, int column) {
+        return values[column * 3 + row];
+    }
+
+    /**
+     * Multiplies this matrix by another, storing the result in this matrix.
+     * Transforming by the result is the same as transforming by <code>other</code>
+     * and then by this matrix.
+     *
+     * @param other the matrix to multiply by
+     * @return this matrix
+     */
+    public Matrix3 mul(Matrix3 other) {
+        return mul(this, other, this);
+    }
+
+    /**
+     * Multiplies <code>left</code> by <code>right</code>, storing the result in <code>out</code>.
+     * <code>out</code> may be either operand.
+     *
+     * @param left the left operand
+     * @param right the right operand
+     * @param out the matrix to store the result in
+     * @return <code>out</code>
+     */
+    public static Matrix3 mul(Matrix3 left, Matrix3 right, Matrix3 out) {
+        float[] a = left.values;
+        float[] b = right.values;
+
+        float m00 = a[M00] * b[M00] + a[M01] * b[M10] + a[M02] * b[M20];
+        float m10 = a[M10] * b[M00] + a[M11] * b[M10] + a[M12] * b[M20];
+        float m20 = a[M20] * b[M00] + a[M21] * b[M10] + a[M22] * b[M20];
+        float m01 = a[M00] * b[M01] + a[M01] * b[M11] + a[M02] * b[M21];
+        float m11 = a[M10] * b[M01] + a[M11] * b[M11] + a[M12] * b[M21];
+        float m21 = a[M20] * b[M01] + a[M21] * b[M11] + a[M22] * b[M21];
+        float m02 = a[M00] * b[M02] + a[M01] * b[M12] + a[M02] * b[M22];
+        float m12 = a[M10] * b[M02] + a[M11] * b[M12] + a[M12] * b[M22];
+        float m22 = a[M20] * b[M02] + a[M21] * b[M12] + a[M22] * b[M22];
+
+        float[] v = out.values;
+        v[M00] = m00;
+        v[M10] = m10;
+        v[M20] = m20;
+        v[M01] = m01;
+        v[M11] = m11;
+        v[M21] = m21;
+        v[M02] = m02;
+        v[M12] = m12;
+        v[M22] = m22;
+        return out;
+    }
+
+    /**
+     * Applies a translation before this matrix, in place.
+     *
+     * @param x the x translation
+     * @param y the y translation
+     * @return this matrix
+     */
+    public Matrix3 translate(float x, float y) {
+        values[M02] += values[M00] * x + values[M01] * y;
+        values[M12] += values[M10] * x + values[M11] * y;
+        values[M22] += values[M20] * x + values[M21] * y;
+        return this;
+    }
 
-        Matrix3 matrix = new Matrix3();
+    /**
+     * Applies a scale before this matrix, in place.
+     *
+     * @param x the x scale
+     * @param y the y scale
+     * @return this matrix
+     */
+    public Matrix3 scale(float x, float y) {
+        for (int row = 0; row < 3; row++) {
+            values[row] *= x;
+            values[3 + row] *= y;
+        }
+        return this;
+    }
 
-        matrix.values[0][0] = 2f / ( right - left);
-        matrix.values[0][1] = -((float) right + left) / (right - left);
-        matrix.values[1][1] = 2f / ( top - bottom);
-        matrix.values[1][2] = -((float) top + bottom) / (top - bottom);
-        matrix.values[2][2] = 1;
+    /**
+     * Applies a counterclockwise rotation before this matrix, in place.
+     *
+     * @param radians the angle to rotate by, in radians
+     * @return this matrix
+     */
+    public Matrix3 rotate(float radians) {
+        float cos = (float) Math.cos(radians);
+        float sin = (float) Math.sin(radians);
 
-        return matrix;
+        for (int row = 0; row < 3; row++) {
+            float a0 = values[row];
+            float a1 = values[3 + row];
+            values[row] = a0 * cos + a1 * sin;
+            values[3 + row] = a1 * cos - a0 * sin;
+        }
+        return this;
     }
 
     public Vector2 mult(Vector2 in) {
@@ -65,53 +218,97 @@ public final class Matrix3 {
     }
 
     public Vector2 mult(Vector2 in, Vector2 out) {
-        float x = values[0][0] * in.getX()
-                + values[0][1] * in.getY()
-                + values[0][2];
-        float y = values[1][0] * in.getX()
-                + values[1][1] * in.getY()
-                + values[1][2];
-        float w = values[2][0] * in.getX()
-                + values[2][1] * in.getY()
-                + values[2][2];
-
-        if (w != 1) {
-            x /= w;
-            y /= w;
-        }
+        float x = in.getX();
+        float y = in.getY();
+        float w = row(2, x, y);
+
+        out.set(row(0, x, y) / w, row(1, x, y) / w);
+        return out;
+    }
+
+    public float[] mult(float x, float y, float[] out, int offset) {
+        float w = row(2, x, y);
+        float outX = row(0, x, y) / w;
+        float outY = row(1, x, y) / w;
 
-        out.set(x, y);
+        out[offset] = outX;
+        out[offset + 1] = outY;
+        return out;
+    }
+
+    private float row(int row, float x, float y) {
+        return values[row] * x + values[3 + row] * y + values[6 + row];
+    }
+
+    /**
+     * Stores this matrix in column-major order at the buffer's current position,
+     * without changing the position.
+     *
+     * @param buffer the buffer to store this matrix in
+     * @return <code>buffer</code>
+     */
+    public FloatBuffer get(FloatBuffer buffer) {
+        int position = buffer.position();
+        buffer.put(values);
+        buffer.position(position);
+        return buffer;
+    }
+
+    /**
+     * Stores this matrix in column-major order in the provided array.
+     *
+     * @param out the array to store this matrix in
+     * @param offset the index to store the first value at
+     * @return <code>out</code>
+     */
+    public float[] get(float[] out, int offset) {
+        System.arraycopy(values, 0, out, offset, 9);
         return out;
     }
 
     public float determinant() {
-        return (values[0][0] * (values[1][1] * values[2][2] - values[1][2] * values[2][1])
-                - values[0][1] * (values[1][0] * values[2][2] - values[1][2] * values[2][0])
-                + values[0][2] * (values[1][0] * values[2][1] - values[1][1] * values[2][0]));
+        return (values[M00] * (values[M11] * values[M22] - values[M12] * values[M21])
+                - values[M01] * (values[M10] * values[M22] - values[M12] * values[M20])
+                + values[M02] * (values[M10] * values[M21] - values[M11] * values[M20]));
     }
 
     public Matrix3 invert() {
+        return invert(new Matrix3());
+    }
+
+    /**
+     * Stores the inverse of this matrix in <code>out</code>, which may be this matrix.
+     * If this matrix is not invertible, <code>out</code> is set to the identity.
+     *
+     * @param out the matrix to store the inverse in
+     * @return <code>out</code>
+     */
+    public Matrix3 invert(Matrix3 out) {
         float d = determinant();
 
         if (d == 0f)
-            return Matrix3.createIdentity();
+            return out.setToIdentity();
 
         d = 1 / d;
 
-        Matrix3 tmp = new Matrix3();
-        tmp.values[0][0] = d * (values[1][1] * values[2][2] - values[1][2] * values[2][1]);
-        tmp.values[0][1] = d * (values[0][2] * values[2][1] - values[0][1] * values[2][2]);
-        tmp.values[0][2] = d * (values[0][1] * values[1][2] - values[0][2] * values[1][1]);
+        float m00 = values[M00], m01 = values[M01], m02 = values[M02];
+        float m10 = values[M10], m11 = values[M11], m12 = values[M12];
+        float m20 = values[M20], m21 = values[M21], m22 = values[M22];
 
-        tmp.values[1][0] = d * (values[1][2] * values[2][0] - values[1][0] * values[2][2]);
-        tmp.values[1][1] = d * (values[0][0] * values[2][2] - values[0][2] * values[2][0]);
-        tmp.values[1][2] = d * (values[0][2] * values[1][0] - values[0][0] * values[1][2]);
+        float[] v = out.values;
+        v[M00] = d * (m11 * m22 - m12 * m21);
+        v[M01] = d * (m02 * m21 - m01 * m22);
+        v[M02] = d * (m01 * m12 - m02 * m11);
 
-        tmp.values[2][0] = d * (values[1][0] * values[2][1] - values[1][1] * values[2][0]);
-        tmp.values[2][1] = d * (values[0][1] * values[2][0] - values[0][0] * values[2][1]);
-        tmp.values[2][2] = d * (values[0][0] * values[1][1] - values[0][1] * values[1][0]);
+        v[M10] = d * (m12 * m20 - m10 * m22);
+        v[M11] = d * (m00 * m22 - m02 * m20);
+        v[M12] = d * (m02 * m10 - m00 * m12);
 
-        return tmp;
+        v[M20] = d * (m10 * m21 - m11 * m20);
+        v[M21] = d * (m01 * m20 - m00 * m21);
+        v[M22] = d * (m00 * m11 - m01 * m10);
+
+        return out;
     }
 
     @Override
@@ -121,16 +318,24 @@ public final class Matrix3 {
 
         Matrix3 matrix3 = (Matrix3) o;
 
-        return Arrays.deepEquals(values, matrix3.values);
+        return Arrays.equals(values, matrix3.values);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(values);
+        return Arrays.hashCode(values);
     }
 
     @Override
     public String toString() {
-        return Arrays.deepToString(values);
+        StringBuilder builder = new StringBuilder("[");
+        for (int row = 0; row < 3; row++) {
+            builder.append(row == 0 ? "[" : ", [");
+            for (int column = 0; column < 3; column++) {
+                builder.append(column == 0 ? "" : ", ").append(get(row, column));
+            }
+            builder.append(']');
+        }
+        return builder.append(']').toString();
     }
 }
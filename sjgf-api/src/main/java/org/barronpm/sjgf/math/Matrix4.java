@@ -16,11 +16,35 @@
 
 package org.barronpm.sjgf.math;
 
+import java.nio.FloatBuffer;
 import java.util.Arrays;
 
+/**
+ * A 4x4 matrix of floats, stored in a flat array in column-major order.
+ *
+ * Methods that modify a matrix do so in place and return it, so that calls
+ * can be chained without allocating intermediate matrices.
+ */
 public final class Matrix4 {
 
-    private final float[][] values;
+    private static final int M00 = 0;
+    private static final int M10 = 1;
+    private static final int M20 = 2;
+    private static final int M30 = 3;
+    private static final int M01 = 4;
+    private static final int M11 = 5;
+    private static final int M21 = 6;
+    private static final int M31 = 7;
+    private static final int M02 = 8;
+    private static final int M12 = 9;
+    private static final int M22 = 10;
+    private static final int M32 = 11;
+    private static final int M03 = 12;
+    private static final int M13 = 13;
+    private static final int M23 = 14;
+    private static final int M33 = 15;
+
+    private final float[] values = new float[16];
 
     public Matrix4(float[][] values) {
         if (values == null || values.length != 4
@@ -31,39 +55,217 @@ public final class Matrix4 {
             throw new IllegalArgumentException("Must provide a 4x4 array");
         }
 
-        this.values = values;
+        for (int row = 0; row < 4; row++) {
+            for (int column = 0; column < 4; column++) {
+                this.values[column * 4 + row] = values[row][column];
+            }
+        }
+    }
+
+    /**
+     * Creates a matrix from 16 values in column-major order.
+     *
+     * @param values the values of the matrix
+     * @throws IllegalArgumentException if values does not have 16 elements
+     */
+    public Matrix4(float[] values) {
+        if (values == null || values.length != 16)
+            throw new IllegalArgumentException("Must provide 16 values");
+
+        System.arraycopy(values, 0, this.values, 0, 16);
+    }
+
+    public Matrix4(Matrix4 matrix) {
+        set(matrix);
     }
 
     private Matrix4() {
-        this.values = new float[4][4];
     }
 
     public static Matrix4 createOrtho(float left, float right, float bottom, float top) {
+        return new Matrix4().setToOrtho(left, right, bottom, top);
+    }
+
+    public static Matrix4 createIdentity() {
+        return new Matrix4().setToIdentity();
+    }
+
+    public Matrix4 set(Matrix4 matrix) {
+        System.arraycopy(matrix.values, 0, values, 0, 16);
+        return this;
+    }
+
+    public Matrix4 setToIdentity() {
+        Arrays.fill(values, 0);
+        values[M00] = 1;
+        values[M11] = 1;
+        values[M22] = 1;
+        values[M33] = 1;
+        return this;
+    }
+
+    public Matrix4 setToOrtho(float left, float right, float bottom, float top) {
         float f = -1;
         float n = 1;
 
-        Matrix4 matrix = new Matrix4();
+        Arrays.fill(values, 0);
+        values[M00] = 2f / (right - left);
+        values[M03] = -(right + left) / (right - left);
+        values[M11] = 2f / (top - bottom);
+        values[M13] = -(top + bottom) / (top - bottom);
+        values[M22] = 2f / (f - n);
+        values[M23] = -(f + n) / (f - n);
+        values[M33] = 1;
+        return this;
+    }
 
-        matrix.values[0][0] = 2f / (right - left);
-        matrix.values[0][3] = -(right + left) / (right - left);
-        matrix.values[1][1] = 2f / (top - bottom);
-        matrix.values[1][3] = -(top + bottom) / (top - bottom);
-        matrix.values[2][2] = 2f / (f - n);
-        matrix.values[2][3] = -(f + n) / (f - n);
-        matrix.values[3][3] = 1;
+    /**
+     * Returns the value at the provided row and column.
+     *
+     * @param row the row, from 0 to 3
+     * @param column the column, from 0 to 3
+     * @return the value at the row and column
+     */
+    public float get(int row, int column) {
+        return values[column * 4 + row];
+    }
 
-        return matrix;
+    /**
+     * Multiplies this matrix by another, storing the result in this matrix.
+     * Transforming by the result is the same as transforming by <code>other</code>
+     * and then by this matrix.
+     *
+     * @param other the matrix to multiply by
+     * @return this matrix
+     */
+    public Matrix4 mul(Matrix4 other) {
+        return mul(this, other, this);
     }
 
-    public static Matrix4 createIdentity() {
-        Matrix4 matrix = new Matrix4();
-        float[][] values = matrix.values;
-        values[0][0] = 1;
-        values[1][1] = 1;
-        values[2][2] = 1;
-        values[3][3] = 1;
+    /**
+     * Multiplies <code>left</code> by <code>right</code>, storing the result in <code>out</code>.
+     * <code>out</code> may be either operand.
+     *
+     * @param left the left operand
+     * @param right the right operand
+     * @param out the matrix to store the result in
+     * @return <code>out</code>
+     */
+    public static Matrix4 mul(Matrix4 left, Matrix4 right, Matrix4 out) {
+        float[] a = left.values;
+        float[] b = right.values;
+
+        float m00 = a[M00] * b[M00] + a[M01] * b[M10] + a[M02] * b[M20] + a[M03] * b[M30];
+        float m10 = a[M10] * b[M00] + a[M11] * b[M10] + a[M12] * b[M20] + a[M13] * b[M30];
+        float m20 = a[M20] * b[M00] + a[M21] * b[M10] + a[M22] * b[M20] + a[M23] * b[M30];
+        float m30 = a[M30] * b[M00] + a[M31] * b[M10] + a[M32] * b[M20] + a[M33] * b[M30];
+        float m01 = a[M00] * b[M01] + a[M01] * b[M11] + a[M02] * b[M21] + a[M03] * b[M31];
+        float m11 = a[M10] * b[M01] + a[M11] * b[M11] + a[M12] * b[M21] + a[M13] * b[M31];
+        float m21 = a[M20] * b[M01] + a[M21] * b[M11] + a[M22] * b[M21] + a[M23] * b[M31];
+        float m31 = a[M30] * b[M01] + a[M31] * b[M11] + a[M32] * b[M21] + a[M33] * b[M31];
+        float m02 = a[M00] * b[M02] + a[M01] * b[M12] + a[M02] * b[M22] + a[M03] * b[M32];
+        float m12 = a[M10] * b[M02] + a[M11] * b[M12] + a[M12] * b[M22] + a[M13] * b[M32];
+        float m22 = a[M20] * b[M02] + a[M21] * b[M12] + a[M22] * b[M22] + a[M23] * b[M32];
+        float m32 = a[M30] * b[M02] + a[M31] * b[M12] + a[M32] * b[M22] + a[M33] * b[M32];
+        float m03 = a[M00] * b[M03] + a[M01] * b[M13] + a[M02] * b[M23] + a[M03] * b[M33];
+        float m13 = a[M10] * b[M03] + a[M11] * b[M13] + a[M12] * b[M23] + a[M13] * b[M33];
+        float m23 = a[M20] * b[M03] + a[M21] * b[M13] + a[M22] * b[M23] + a[M23] * b[M33];
+        float m33 = a[M30] * b[M03] + a[M31] * b[M13] + a[M32] * b[M23] + a[M33] * b[M33];
+
+        float[] v = out.values;
+        v[M00] = m00;
+        v[M10] = m10;
+        v[M20] = m20;
+        v[M30] = m30;
+        v[M01] = m01;
+        v[M11] = m11;
+        v[M21] = m21;
+        v[M31] = m31;
+        v[M02] = m02;
+        v[M12] = m12;
+        v[M22] = m22;
+        v[M32] = m32;
+        v[M03] = m03;
+        v[M13] = m13;
+        v[M23] = m23;
+        v[M33] = m33;
+        return out;
+    }
+
+    /**
+     * Applies a translation before this matrix, in place.
+     *
+     * @param x the x translation
+     * @param y the y translation
+     * @param z the z translation
+     * @return this matrix
+     */
+    public Matrix4 translate(float x, float y, float z) {
+        values[M03] += values[M00] * x + values[M01] * y + values[M02] * z;
+        values[M13] += values[M10] * x + values[M11] * y + values[M12] * z;
+        values[M23] += values[M20] * x + values[M21] * y + values[M22] * z;
+        values[M33] += values[M30] * x + values[M31] * y + values[M32] * z;
+        return this;
+    }
+
+    /**
+     * Applies a scale before this matrix, in place.
+     *
+     * @param x the x scale
+     * @param y the y scale
+     * @param z the z scale
+     * @return this matrix
+     */
+    public Matrix4 scale(float x, float y, float z) {
+        for (int row = 0; row < 4; row++) {
+            values[row] *= x;
+            values[4 + row] *= y;
+            values[8 + row] *= z;
+        }
+        return this;
+    }
+
+    /**
+     * Applies a rotation around an axis before this matrix, in place.
+     *
+     * @param x the x component of the axis
+     * @param y the y component of the axis
+     * @param z the z component of the axis
+     * @param radians the angle to rotate by, in radians
+     * @return this matrix
+     */
+    public Matrix4 rotate(float x, float y, float z, float radians) {
+        float length = (float) Math.sqrt(x * x + y * y + z * z);
+        if (length == 0)
+            return this;
+
+        x /= length;
+        y /= length;
+        z /= length;
+
+        float cos = (float) Math.cos(radians);
+        float sin = (float) Math.sin(radians);
+        float c = 1 - cos;
 
-        return matrix;
+        float r00 = x * x * c + cos;
+        float r10 = y * x * c + z * sin;
+        float r20 = z * x * c - y * sin;
+        float r01 = x * y * c - z * sin;
+        float r11 = y * y * c + cos;
+        float r21 = z * y * c + x * sin;
+        float r02 = x * z * c + y * sin;
+        float r12 = y * z * c - x * sin;
+        float r22 = z * z * c + cos;
+
+        for (int row = 0; row < 4; row++) {
+            float a0 = values[row];
+            float a1 = values[4 + row];
+            float a2 = values[8 + row];
+            values[row] = a0 * r00 + a1 * r10 + a2 * r20;
+            values[4 + row] = a0 * r01 + a1 * r11 + a2 * r21;
+            values[8 + row] = a0 * r02 + a1 * r12 + a2 * r22;
+        }
+        return this;
     }
 
     public Vector3 mult(Vector3 in) {
@@ -71,104 +273,167 @@ public final class Matrix4 {
     }
 
     public Vector3 mult(Vector3 in, Vector3 out) {
-        float x = values[0][0] * in.getX()
-                + values[0][1] * in.getY()
-                + values[0][2] * in.getZ()
-                + values[0][3];
-        float y = values[1][0] * in.getX()
-                + values[1][1] * in.getY()
-                + values[1][2] * in.getZ()
-                + values[1][3];
-        float z = values[2][0] * in.getX()
-                + values[2][1] * in.getY()
-                + values[2][2] * in.getZ()
-                + values[2][3];
-        float w = values[3][0] * in.getX()
-                + values[3][1] * in.getY()
-                + values[3][2] * in.getZ()
-                + values[3][3];
-
-        if (w != 1) {
-            x /= w;
-            y /= w;
-            z /= w;
+        float x = in.getX();
+        float y = in.getY();
+        float z = in.getZ();
+        float w = row(3, x, y, z);
+
+        out.set(row(0, x, y, z) / w, row(1, x, y, z) / w, row(2, x, y, z) / w);
+        return out;
+    }
+
+    public float[] mult(float x, float y, float z, float[] out, int offset) {
+        float w = row(3, x, y, z);
+        float outX = row(0, x, y, z) / w;
+        float outY = row(1, x, y, z) / w;
+        float outZ = row(2, x, y, z) / w;
+
+        out[offset] = outX;
+        out[offset + 1] = outY;
+        out[offset + 2] = outZ;
+        return out;
+    }
+
+    public FloatBuffer mult(float x, float y, float z, FloatBuffer out) {
+        float w = row(3, x, y, z);
+        return out.put(row(0, x, y, z) / w)
+                .put(row(1, x, y, z) / w)
+                .put(row(2, x, y, z) / w);
+    }
+
+    public void multAll(float[] in, float[] out, int count) {
+        for (int i = 0; i < count * 3; i += 3) {
+            mult(in[i], in[i + 1], in[i + 2], out, i);
         }
+    }
+
+    private float row(int row, float x, float y, float z) {
+        return values[row] * x + values[4 + row] * y + values[8 + row] * z + values[12 + row];
+    }
 
-        out.set(x, y, z);
+    /**
+     * Stores this matrix in column-major order at the buffer's current position,
+     * without changing the position.
+     *
+     * @param buffer the buffer to store this matrix in
+     * @return <code>buffer</code>
+     */
+    public FloatBuffer get(FloatBuffer buffer) {
+        int position = buffer.position();
+        buffer.put(values);
+        buffer.position(position);
+        return buffer;
+    }
+
+    /**
+     * Stores this matrix in column-major order in the provided array.
+     *
+     * @param out the array to store this matrix in
+     * @param offset the index to store the first value at
+     * @return <code>out</code>
+     */
+    public float[] get(float[] out, int offset) {
+        System.arraycopy(values, 0, out, offset, 16);
         return out;
     }
 
     public float determinant() {
-        return (values[0][0] * values[1][1] - values[1][0] * values[0][1]) * (values[2][2] * values[3][3] - values[3][2] * values[2][3])
-                - (values[0][0] * values[2][1] - values[2][0] * values[0][1]) * (values[1][2] * values[3][3] - values[3][2] * values[1][3])
-                + (values[0][0] * values[3][1] - values[3][0] * values[0][1]) * (values[1][2] * values[2][3] - values[2][2] * values[1][3])
-                + (values[1][0] * values[2][1] - values[2][0] * values[1][1]) * (values[0][2] * values[3][3] - values[3][2] * values[0][3])
-                - (values[1][0] * values[3][1] - values[3][0] * values[1][1]) * (values[0][2] * values[2][3] - values[2][2] * values[0][3])
-                + (values[2][0] * values[3][1] - values[3][0] * values[2][1]) * (values[0][2] * values[1][3] - values[1][2] * values[0][3]);
+        return (values[M00] * values[M11] - values[M10] * values[M01]) * (values[M22] * values[M33] - values[M32] * values[M23])
+                - (values[M00] * values[M21] - values[M20] * values[M01]) * (values[M12] * values[M33] - values[M32] * values[M13])
+                + (values[M00] * values[M31] - values[M30] * values[M01]) * (values[M12] * values[M23] - values[M22] * values[M13])
+                + (values[M10] * values[M21] - values[M20] * values[M11]) * (values[M02] * values[M33] - values[M32] * values[M03])
+                - (values[M10] * values[M31] - values[M30] * values[M11]) * (values[M02] * values[M23] - values[M22] * values[M03])
+                + (values[M20] * values[M31] - values[M30] * values[M21]) * (values[M02] * values[M13] - values[M12] * values[M03]);
     }
 
     public Matrix4 invert() {
+        return invert(new Matrix4());
+    }
+
+    /**
+     * Stores the inverse of this matrix in <code>out</code>, which may be this matrix.
+     * If this matrix is not invertible, <code>out</code> is set to the identity.
+     *
+     * @param out the matrix to store the inverse in
+     * @return <code>out</code>
+     */
+    public Matrix4 invert(Matrix4 out) {
         float d = determinant();
         if (d == 0)
-            return Matrix4.createIdentity();
+            return out.setToIdentity();
 
-        Matrix4 tmp = new Matrix4();
+        float m00 = values[M00];
+        float m01 = values[M01];
+        float m02 = values[M02];
+        float m03 = values[M03];
+        float m10 = values[M10];
+        float m11 = values[M11];
+        float m12 = values[M12];
+        float m13 = values[M13];
+        float m20 = values[M20];
+        float m21 = values[M21];
+        float m22 = values[M22];
+        float m23 = values[M23];
+        float m30 = values[M30];
+        float m31 = values[M31];
+        float m32 = values[M32];
+        float m33 = values[M33];
 
         d = 1.0f / d;
 
-        tmp.values[0][0] = d * (values[1][1] * (values[2][2] * values[3][3] - values[3][2] * values[2][3])
-                + values[2][1] * (values[3][2] * values[1][3] - values[1][2] * values[3][3])
-                + values[3][1] * (values[1][2] * values[2][3] - values[2][2] * values[1][3]));
-        tmp.values[1][0] = d * (values[1][2] * (values[2][0] * values[3][3] - values[3][0] * values[2][3])
-                + values[2][2] * (values[3][0] * values[1][3] - values[1][0] * values[3][3])
-                + values[3][2] * (values[1][0] * values[2][3] - values[2][0] * values[1][3]));
-        tmp.values[2][0] = d * (values[1][3] * (values[2][0] * values[3][1] - values[3][0] * values[2][1])
-                + values[2][3] * (values[3][0] * values[1][1] - values[1][0] * values[3][1])
-                + values[3][3] * (values[1][0] * values[2][1] - values[2][0] * values[1][1]));
-        tmp.values[3][0] = d * (values[1][0] * (values[3][1] * values[2][2] - values[2][1] * values[3][2])
-                + values[2][0] * (values[1][1] * values[3][2] - values[3][1] * values[1][2])
-                + values[3][0] * (values[2][1] * values[1][2] - values[1][1] * values[2][2]));
-
-        tmp.values[0][1] = d * (values[2][1] * (values[0][2] * values[3][3] - values[3][2] * values[0][3])
-                + values[3][1] * (values[2][2] * values[0][3] - values[0][2] * values[2][3])
-                + values[0][1] * (values[3][2] * values[2][3] - values[2][2] * values[3][3]));
-        tmp.values[1][1] = d * (values[2][2] * (values[0][0] * values[3][3] - values[3][0] * values[0][3])
-                + values[3][2] * (values[2][0] * values[0][3] - values[0][0] * values[2][3])
-                + values[0][2] * (values[3][0] * values[2][3] - values[2][0] * values[3][3]));
-        tmp.values[2][1] = d * (values[2][3] * (values[0][0] * values[3][1] - values[3][0] * values[0][1])
-                + values[3][3] * (values[2][0] * values[0][1] - values[0][0] * values[2][1])
-                + values[0][3] * (values[3][0] * values[2][1] - values[2][0] * values[3][1]));
-        tmp.values[3][1] = d * (values[2][0] * (values[3][1] * values[0][2] - values[0][1] * values[3][2])
-                + values[3][0] * (values[0][1] * values[2][2] - values[2][1] * values[0][2])
-                + values[0][0] * (values[2][1] * values[3][2] - values[3][1] * values[2][2]));
-
-        tmp.values[0][2] = d * (values[3][1] * (values[0][2] * values[1][3] - values[1][2] * values[0][3])
-                + values[0][1] * (values[1][2] * values[3][3] - values[3][2] * values[1][3])
-                + values[1][1] * (values[3][2] * values[0][3] - values[0][2] * values[3][3]));
-        tmp.values[1][2] = d * (values[3][2] * (values[0][0] * values[1][3] - values[1][0] * values[0][3])
-                + values[0][2] * (values[1][0] * values[3][3] - values[3][0] * values[1][3])
-                + values[1][2] * (values[3][0] * values[0][3] - values[0][0] * values[3][3]));
-        tmp.values[2][2] = d * (values[3][3] * (values[0][0] * values[1][1] - values[1][0] * values[0][1])
-                + values[0][3] * (values[1][0] * values[3][1] - values[3][0] * values[1][1])
-                + values[1][3] * (values[3][0] * values[0][1] - values[0][0] * values[3][1]));
-        tmp.values[3][2] = d * (values[3][0] * (values[1][1] * values[0][2] - values[0][1] * values[1][2])
-                + values[0][0] * (values[3][1] * values[1][2] - values[1][1] * values[3][2])
-                + values[1][0] * (values[0][1] * values[3][2] - values[3][1] * values[0][2]));
-
-        tmp.values[0][3] = d * (values[0][1] * (values[2][2] * values[1][3] - values[1][2] * values[2][3])
-                + values[1][1] * (values[0][2] * values[2][3] - values[2][2] * values[0][3])
-                + values[2][1] * (values[1][2] * values[0][3] - values[0][2] * values[1][3]));
-        tmp.values[1][3] = d * (values[0][2] * (values[2][0] * values[1][3] - values[1][0] * values[2][3])
-                + values[1][2] * (values[0][0] * values[2][3] - values[2][0] * values[0][3])
-                + values[2][2] * (values[1][0] * values[0][3] - values[0][0] * values[1][3]));
-        tmp.values[2][3] = d * (values[0][3] * (values[2][0] * values[1][1] - values[1][0] * values[2][1])
-                + values[1][3] * (values[0][0] * values[2][1] - values[2][0] * values[0][1])
-                + values[2][3] * (values[1][0] * values[0][1] - values[0][0] * values[1][1]));
-        tmp.values[3][3] = d * (values[0][0] * (values[1][1] * values[2][2] - values[2][1] * values[1][2])
-                + values[1][0] * (values[2][1] * values[0][2] - values[0][1] * values[2][2])
-                + values[2][0] * (values[0][1] * values[1][2] - values[1][1] * values[0][2]));
-
-        return tmp;
+        out.values[M00] = d * (m11 * (m22 * m33 - m32 * m23)
+                + m21 * (m32 * m13 - m12 * m33)
+                + m31 * (m12 * m23 - m22 * m13));
+        out.values[M10] = d * (m12 * (m20 * m33 - m30 * m23)
+                + m22 * (m30 * m13 - m10 * m33)
+                + m32 * (m10 * m23 - m20 * m13));
+        out.values[M20] = d * (m13 * (m20 * m31 - m30 * m21)
+                + m23 * (m30 * m11 - m10 * m31)
+                + m33 * (m10 * m21 - m20 * m11));
+        out.values[M30] = d * (m10 * (m31 * m22 - m21 * m32)
+                + m20 * (m11 * m32 - m31 * m12)
+                + m30 * (m21 * m12 - m11 * m22));
+
+        out.values[M01] = d * (m21 * (m02 * m33 - m32 * m03)
+                + m31 * (m22 * m03 - m02 * m23)
+                + m01 * (m32 * m23 - m22 * m33));
+        out.values[M11] = d * (m22 * (m00 * m33 - m30 * m03)
+                + m32 * (m20 * m03 - m00 * m23)
+                + m02 * (m30 * m23 - m20 * m33));
+        out.values[M21] = d * (m23 * (m00 * m31 - m30 * m01)
+                + m33 * (m20 * m01 - m00 * m21)
+                + m03 * (m30 * m21 - m20 * m31));
+        out.values[M31] = d * (m20 * (m31 * m02 - m01 * m32)
+                + m30 * (m01 * m22 - m21 * m02)
+                + m00 * (m21 * m32 - m31 * m22));
+
+        out.values[M02] = d * (m31 * (m02 * m13 - m12 * m03)
+                + m01 * (m12 * m33 - m32 * m13)
+                + m11 * (m32 * m03 - m02 * m33));
+        out.values[M12] = d * (m32 * (m00 * m13 - m10 * m03)
+                + m02 * (m10 * m33 - m30 * m13)
+                + m12 * (m30 * m03 - m00 * m33));
+        out.values[M22] = d * (m33 * (m00 * m11 - m10 * m01)
+                + m03 * (m10 * m31 - m30 * m11)
+                + m13 * (m30 * m01 - m00 * m31));
+        out.values[M32] = d * (m30 * (m11 * m02 - m01 * m12)
+                + m00 * (m31 * m12 - m11 * m32)
+                + m10 * (m01 * m32 - m31 * m02));
+
+        out.values[M03] = d * (m01 * (m22 * m13 - m12 * m23)
+                + m11 * (m02 * m23 - m22 * m03)
+                + m21 * (m12 * m03 - m02 * m13));
+        out.values[M13] = d * (m02 * (m20 * m13 - m10 * m23)
+                + m12 * (m00 * m23 - m20 * m03)
+                + m22 * (m10 * m03 - m00 * m13));
+        out.values[M23] = d * (m03 * (m20 * m11 - m10 * m21)
+                + m13 * (m00 * m21 - m20 * m01)
+                + m23 * (m10 * m01 - m00 * m11));
+        out.values[M33] = d * (m00 * (m11 * m22 - m21 * m12)
+                + m10 * (m21 * m02 - m01 * m22)
+                + m20 * (m01 * m12 - m11 * m02));
+
+        return out;
     }
 
     @Override
@@ -178,16 +443,24 @@ public final class Matrix4 {
 
         Matrix4 matrix4 = (Matrix4) o;
 
-        return Arrays.deepEquals(values, matrix4.values);
+        return Arrays.equals(values, matrix4.values);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(values);
+        return Arrays.hashCode(values);
     }
 
     @Override
     public String toString() {
-        return Arrays.deepToString(values);
+        StringBuilder builder = new StringBuilder("[");
+        for (int row = 0; row < 4; row++) {
+            builder.append(row == 0 ? "[" : ", [");
+            for (int column = 0; column < 4; column++) {
+                builder.append(column == 0 ? "" : ", ").append(get(row, column));
+            }
+            builder.append(']');
+        }
+        return builder.append(']').toString();
     }
 }
\ No newline at end of file
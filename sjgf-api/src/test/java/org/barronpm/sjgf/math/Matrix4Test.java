@@ -0,0 +1,187 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.math;
+
+import org.junit.Test;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class Matrix4Test {
+
+    private static final float EPSILON = 1e-5f;
+
+    private static final float[][] ROWS = {
+            {2, 0, 1, 3},
+            {1, 3, 0, -2},
+            {0, 1, 4, 1},
+            {0, 0, 0, 1}
+    };
+
+    @Test
+    public void rowArrayIsStoredColumnMajor() {
+        Matrix4 matrix = new Matrix4(ROWS);
+        for (int row = 0; row < 4; row++) {
+            for (int column = 0; column < 4; column++)
+                assertEquals(ROWS[row][column], matrix.get(row, column), 0);
+        }
+
+        float[] columns = matrix.get(new float[17], 1);
+        assertEquals(ROWS[0][1], columns[1 + 4], 0);
+        assertEquals(new Matrix4(ROWS), new Matrix4(Arrays.copyOfRange(columns, 1, 17)));
+    }
+
+    @Test
+    public void mulMatchesReference() {
+        Matrix4 left = new Matrix4(ROWS);
+        Matrix4 right = Matrix4.createIdentity().rotate(1, 2, 3, .7f).translate(4, -5, 6);
+
+        Matrix4 expected = reference(left, right);
+        assertMatrixEquals(expected, Matrix4.mul(left, right, Matrix4.createIdentity()));
+        assertMatrixEquals(expected, new Matrix4(left).mul(right));
+        assertMatrixEquals(expected, Matrix4.mul(new Matrix4(left), right, new Matrix4(right)));
+    }
+
+    @Test
+    public void translateAppliesBeforeMatrix() {
+        Matrix4 matrix = new Matrix4(ROWS);
+        Matrix4 translation = new Matrix4(new float[][]{
+                {1, 0, 0, 5},
+                {0, 1, 0, 6},
+                {0, 0, 1, 7},
+                {0, 0, 0, 1}
+        });
+
+        assertMatrixEquals(reference(matrix, translation), new Matrix4(matrix).translate(5, 6, 7));
+    }
+
+    @Test
+    public void scaleAppliesBeforeMatrix() {
+        Matrix4 matrix = new Matrix4(ROWS);
+        Matrix4 scale = new Matrix4(new float[][]{
+                {2, 0, 0, 0},
+                {0, 3, 0, 0},
+                {0, 0, 4, 0},
+                {0, 0, 0, 1}
+        });
+
+        assertMatrixEquals(reference(matrix, scale), new Matrix4(matrix).scale(2, 3, 4));
+    }
+
+    @Test
+    public void rotateAroundZ() {
+        Matrix4 rotation = Matrix4.createIdentity().rotate(0, 0, 2, (float) (Math.PI / 2));
+        Vector3 rotated = rotation.mult(new Vector3(1, 0, 0));
+
+        assertEquals(0, rotated.getX(), EPSILON);
+        assertEquals(1, rotated.getY(), EPSILON);
+        assertEquals(0, rotated.getZ(), EPSILON);
+    }
+
+    @Test
+    public void invertGivesIdentityProduct() {
+        Matrix4 matrix = new Matrix4(ROWS).rotate(1, 1, 0, .3f);
+
+        assertMatrixEquals(Matrix4.createIdentity(), new Matrix4(matrix).mul(matrix.invert()));
+
+        Matrix4 inPlace = new Matrix4(matrix);
+        assertSame(inPlace, inPlace.invert(inPlace));
+        assertMatrixEquals(matrix.invert(), inPlace);
+    }
+
+    @Test
+    public void invertSingularGivesIdentity() {
+        Matrix4 singular = new Matrix4(new float[16]);
+        assertEquals(Matrix4.createIdentity(), singular.invert());
+    }
+
+    @Test
+    public void orthoMapsBoundsToClipSpace() {
+        Matrix4 ortho = Matrix4.createOrtho(0, 800, 0, 600);
+        float[] out = new float[6];
+
+        ortho.mult(0, 0, 0, out, 0);
+        ortho.mult(800, 600, 0, out, 3);
+
+        assertArrayEquals(new float[]{-1, -1, 0, 1, 1, 0}, out, EPSILON);
+    }
+
+    @Test
+    public void multOverloadsAgree() {
+        Matrix4 matrix = new Matrix4(ROWS).rotate(0, 1, 0, 1.1f);
+        Vector3 expected = matrix.mult(new Vector3(3, -4, 5));
+
+        float[] array = matrix.mult(3, -4, 5, new float[5], 2);
+        assertEquals(expected.getX(), array[2], EPSILON);
+        assertEquals(expected.getY(), array[3], EPSILON);
+        assertEquals(expected.getZ(), array[4], EPSILON);
+
+        FloatBuffer buffer = matrix.mult(3, -4, 5, FloatBuffer.allocate(3));
+        assertEquals(3, buffer.position());
+        assertEquals(expected.getX(), buffer.get(0), EPSILON);
+        assertEquals(expected.getY(), buffer.get(1), EPSILON);
+        assertEquals(expected.getZ(), buffer.get(2), EPSILON);
+    }
+
+    @Test
+    public void multAllInPlace() {
+        Matrix4 matrix = Matrix4.createOrtho(-10, 10, -5, 5);
+        float[] points = {10, 5, 0, -10, -5, 0, 0, 0, 0};
+
+        matrix.multAll(points, points, 3);
+
+        assertArrayEquals(new float[]{1, 1, 0, -1, -1, 0, 0, 0, 0}, points, EPSILON);
+    }
+
+    @Test
+    public void getBufferKeepsPosition() {
+        FloatBuffer buffer = FloatBuffer.allocate(20);
+        buffer.position(2);
+
+        new Matrix4(ROWS).get(buffer);
+
+        assertEquals(2, buffer.position());
+        assertEquals(ROWS[0][0], buffer.get(2), 0);
+        assertEquals(ROWS[1][0], buffer.get(3), 0);
+        assertEquals(ROWS[0][1], buffer.get(6), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsWrongLength() {
+        new Matrix4(new float[15]);
+    }
+
+    private static Matrix4 reference(Matrix4 left, Matrix4 right) {
+        float[][] rows = new float[4][4];
+        for (int row = 0; row < 4; row++) {
+            for (int column = 0; column < 4; column++) {
+                for (int i = 0; i < 4; i++)
+                    rows[row][column] += left.get(row, i) * right.get(i, column);
+            }
+        }
+        return new Matrix4(rows);
+    }
+
+    private static void assertMatrixEquals(Matrix4 expected, Matrix4 actual) {
+        for (int row = 0; row < 4; row++) {
+            for (int column = 0; column < 4; column++)
+                assertEquals(expected.get(row, column), actual.get(row, column), EPSILON);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf;
+
+import org.barronpm.sjgf.events.input.KeyPressEvent;
+import org.barronpm.sjgf.events.input.MouseMoveEvent;
+import org.lwjgl.glfw.GLFWCursorPosCallback;
+import org.lwjgl.glfw.GLFWKeyCallback;
+import org.lwjgl.glfw.GLFWMonitorCallback;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+import static org.lwjgl.glfw.GLFW.*;
+import static org.lwjgl.system.MemoryUtil.NULL;
+
+/**
+ * Measures event fan-out through the callbacks an EventDispatcher registers
+ * with GLFW, which create an event per call and pass it to every listener.
+ * A hidden GLFW window provides the callbacks, so a display is needed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventDispatcherBenchmark {
+
+    @Param({"1", "4", "16"})
+    public int listeners;
+
+    private long handle;
+    private GLFWKeyCallback keyCallback;
+    private GLFWCursorPosCallback cursorPosCallback;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        if (!glfwInit())
+            throw new IllegalStateException("Failed to initialize GLFW");
+
+        glfwWindowHint(GLFW_VISIBLE, GLFW_FALSE);
+        handle = glfwCreateWindow(1, 1, "SJGF", NULL, NULL);
+        if (handle == NULL)
+            throw new IllegalStateException("Failed to create window");
+
+        // Events only need a window to ask for its game
+        GameWindow window = (GameWindow) Proxy.newProxyInstance(GameWindow.class.getClassLoader(),
+                new Class<?>[]{GameWindow.class}, (proxy, method, args) -> null);
+        EventDispatcher dispatcher = new EventDispatcher(window, handle);
+
+        for (int i = 0; i < listeners; i++) {
+            dispatcher.addListener(new ListenerAdapter() {
+                @Override
+                public void onKeyPress(KeyPressEvent event) {
+                    blackhole.consume(event.getKey());
+                }
+
+                @Override
+                public void onMouseMove(MouseMoveEvent event) {
+                    blackhole.consume(event.getNewPosition());
+                }
+            });
+        }
+
+        // Setting a callback returns the one it replaces, which is the dispatcher's
+        keyCallback = glfwSetKeyCallback(handle, null);
+        glfwSetKeyCallback(handle, keyCallback);
+        cursorPosCallback = glfwSetCursorPosCallback(handle, null);
+        glfwSetCursorPosCallback(handle, cursorPosCallback);
+    }
+
+    @TearDown
+    public void tearDown() {
+        glfwDestroyWindow(handle);
+        keyCallback.free();
+        cursorPosCallback.free();
+        GLFWMonitorCallback monitorCallback = glfwSetMonitorCallback(null);
+        if (monitorCallback != null)
+            monitorCallback.free();
+        glfwTerminate();
+    }
+
+    @Benchmark
+    public void dispatchKeyPress() {
+        keyCallback.invoke(handle, GLFW_KEY_A, 0, GLFW_PRESS, 0);
+    }
+
+    /**
+     * Includes the window size query the cursor callback makes to flip the y axis.
+     */
+    @Benchmark
+    public void dispatchMouseMove() {
+        cursorPosCallback.invoke(handle, 3, 4);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.draw;
+
+import org.barronpm.sjgf.math.Vector3;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrthographicCameraBenchmark {
+
+    private static final int COUNT = 1024;
+
+    private final OrthographicCamera camera = new OrthographicCamera(0, 800, 0, 600);
+
+    private final Vector3 vector = new Vector3(400, 300, 0);
+    private final Vector3 out = new Vector3();
+    private final float[] point = new float[3];
+
+    private final float[] in = new float[COUNT * 3];
+    private final float[] outs = new float[COUNT * 3];
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < in.length; i++)
+            in[i] = i;
+    }
+
+    @Benchmark
+    public Vector3 project() {
+        return camera.project(400, 300, 0);
+    }
+
+    @Benchmark
+    public Vector3 projectInto() {
+        return camera.project(vector, out);
+    }
+
+    @Benchmark
+    public float[] projectArray() {
+        return camera.project(400, 300, 0, point, 0);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public float[] projectAll() {
+        camera.projectAll(in, outs, COUNT);
+        return outs;
+    }
+
+    @Benchmark
+    public OrthographicCamera setViewport() {
+        camera.setViewport(0, 800, 0, 600);
+        return camera;
+    }
+}
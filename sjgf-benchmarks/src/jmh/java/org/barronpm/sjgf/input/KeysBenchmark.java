@@ -0,0 +1,53 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.input;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeysBenchmark {
+
+    private final int[] codes = new int[Keys.values().length];
+
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        Keys[] keys = Keys.values();
+        for (int i = 0; i < keys.length; i++)
+            codes[i] = keys[i].getCode();
+    }
+
+    @Benchmark
+    public Keys getKeyByCode() {
+        int code = codes[next];
+        next = next + 1 == codes.length ? 0 : next + 1;
+        return Keys.getKeyByCode(code);
+    }
+
+    @Benchmark
+    public Keys getKeyByUnknownCode() {
+        return Keys.getKeyByCode(-2);
+    }
+}
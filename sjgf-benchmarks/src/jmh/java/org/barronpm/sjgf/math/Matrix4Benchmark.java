@@ -0,0 +1,82 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.math;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Matrix4Benchmark {
+
+    private static final int COUNT = 1024;
+
+    private final Matrix4 matrix = Matrix4.createOrtho(0, 800, 0, 600)
+            .rotate(0, 0, 1, .5f)
+            .translate(10, 20, 0);
+    private final Matrix4 other = Matrix4.createIdentity().scale(2, 3, 1);
+    private final Matrix4 result = Matrix4.createIdentity();
+
+    private final Vector3 vector = new Vector3(400, 300, 0);
+    private final Vector3 out = new Vector3();
+
+    private final float[] in = new float[COUNT * 3];
+    private final float[] outs = new float[COUNT * 3];
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < in.length; i++)
+            in[i] = i;
+    }
+
+    @Benchmark
+    public Vector3 mult() {
+        return matrix.mult(vector);
+    }
+
+    @Benchmark
+    public Vector3 multInto() {
+        return matrix.mult(vector, out);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(COUNT)
+    public float[] multAll() {
+        matrix.multAll(in, outs, COUNT);
+        return outs;
+    }
+
+    @Benchmark
+    public Matrix4 mul() {
+        return Matrix4.mul(matrix, other, result);
+    }
+
+    @Benchmark
+    public Matrix4 invert() {
+        return matrix.invert();
+    }
+
+    @Benchmark
+    public Matrix4 invertInto() {
+        return matrix.invert(result);
+    }
+}
@@ -0,0 +1,79 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.math;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VectorBenchmark {
+
+    private final Vector2 a2 = new Vector2(3, 4);
+    private final Vector2 b2 = new Vector2(-1, 2);
+
+    private final Vector3 a3 = new Vector3(3, 4, 5);
+    private final Vector3 b3 = new Vector3(-1, 2, -3);
+
+    @Benchmark
+    public Vector2 vector2Add() {
+        a2.add(b2);
+        a2.sub(b2);
+        return a2;
+    }
+
+    @Benchmark
+    public float vector2Dist() {
+        return a2.dist(b2);
+    }
+
+    @Benchmark
+    public Vector2 vector2Normalize() {
+        Vector2 vector = new Vector2(a2);
+        vector.normalize();
+        return vector;
+    }
+
+    @Benchmark
+    public Vector3 vector3Add() {
+        a3.add(b3);
+        a3.sub(b3);
+        return a3;
+    }
+
+    @Benchmark
+    public float vector3Dot() {
+        return a3.dotProduct(b3);
+    }
+
+    @Benchmark
+    public Vector3 vector3Cross() {
+        return a3.crossProduct(b3);
+    }
+
+    @Benchmark
+    public Vector3 vector3Normalize() {
+        Vector3 vector = new Vector3(a3);
+        vector.normalize();
+        return vector;
+    }
+}
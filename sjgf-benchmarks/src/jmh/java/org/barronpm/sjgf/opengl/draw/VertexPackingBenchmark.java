@@ -0,0 +1,81 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.opengl.draw;
+
+import org.barronpm.sjgf.draw.Color;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the CPU side of batching: packing vertices into the staging buffer
+ * the way the batches' add methods do. Nothing here touches OpenGL, so the
+ * staging buffer is a direct buffer rather than one owned by a batch.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VertexPackingBenchmark {
+
+    private static final int QUADS = 1024;
+
+    private final ByteBuffer vertices = ByteBuffer
+            .allocateDirect(QUADS * 4 * VertexFormat.TEXTURE_STRIDE)
+            .order(ByteOrder.nativeOrder());
+
+    private final Color color = new Color(.2f, .4f, .6f, .8f);
+    private final int packed = VertexFormat.pack(color);
+
+    @Benchmark
+    public int packColor() {
+        return VertexFormat.pack(color);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUADS)
+    public ByteBuffer shapeQuads() {
+        int index = 0;
+        for (int i = 0; i < QUADS; i++) {
+            float x = i, y = i;
+            index = VertexFormat.putShapeVertex(vertices, index, x, y, 0, packed);
+            index = VertexFormat.putShapeVertex(vertices, index, x, y + 16, 0, packed);
+            index = VertexFormat.putShapeVertex(vertices, index, x + 16, y + 16, 0, packed);
+            index = VertexFormat.putShapeVertex(vertices, index, x + 16, y, 0, packed);
+        }
+        return vertices;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUADS)
+    public ByteBuffer textureQuads() {
+        int index = 0;
+        for (int i = 0; i < QUADS; i++) {
+            float x = i, y = i;
+            int slot = i & 15;
+            index = VertexFormat.putTextureVertex(vertices, index, x, y, 0, packed, 0, 0, slot, 0);
+            index = VertexFormat.putTextureVertex(vertices, index, x, y + 16, 0, packed, 0, 1, slot, 0);
+            index = VertexFormat.putTextureVertex(vertices, index, x + 16, y + 16, 0, packed, 1, 1, slot, 0);
+            index = VertexFormat.putTextureVertex(vertices, index, x + 16, y, 0, packed, 1, 0, slot, 0);
+        }
+        return vertices;
+    }
+}
@@ -16,6 +16,7 @@
 
 import org.barronpm.sjgf.GameWindow;
 import org.barronpm.sjgf.opengl.GlGameWindow;
+import org.barronpm.sjgf.opengl.GlHeadlessWindow;
 
 module org.barronpm.sjgf.opengl {
     requires org.barronpm.sjgf;
@@ -26,5 +27,8 @@ module org.barronpm.sjgf.opengl {
     requires org.lwjgl.opengl;
     requires org.lwjgl.stb;
 
-    provides GameWindow with GlGameWindow;
+    exports org.barronpm.sjgf.opengl;
+    exports org.barronpm.sjgf.opengl.draw;
+
+    provides GameWindow with GlGameWindow, GlHeadlessWindow;
 }
@@ -0,0 +1,284 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.opengl;
+
+import org.barronpm.sjgf.Game;
+import org.barronpm.sjgf.GameWindow;
+import org.barronpm.sjgf.LoopMode;
+import org.barronpm.sjgf.PipelinedGame;
+import org.barronpm.sjgf.draw.Graphics;
+import org.barronpm.sjgf.exceptions.SJGFException;
+import org.barronpm.sjgf.util.Args;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.barronpm.sjgf.GameWindow.LOG;
+
+/**
+ * The update and timing logic shared by the windows' game loops.
+ * Each frame, {@link #update(Game, GameWindow, double)} advances the game
+ * according to the loop mode, {@link #render(Game, GameWindow, Graphics, double)}
+ * draws it and {@link #sync()} waits out the rest of the frame when a target
+ * frame rate is set.
+ *
+ * In pipelined mode, updates instead run on a thread started by
+ * {@link #start(Game, GameWindow)}, which publishes a snapshot after each
+ * round of updates for the rendering thread to pick up.
+ */
+final class GlGameLoop {
+
+    static final double DEFAULT_FIXED_STEP = 1.0 / 60.0;
+    static final int DEFAULT_MAX_UPDATES = 5;
+
+    // Sleeping is only accurate to a millisecond or two, so the end of a frame is yielded away
+    private static final long YIELD_NANOS = TimeUnit.MILLISECONDS.toNanos(2);
+
+    private LoopMode mode = LoopMode.VARIABLE;
+    private double fixedStep = DEFAULT_FIXED_STEP;
+    private int maxUpdates = DEFAULT_MAX_UPDATES;
+    private int targetFps = 0;
+
+    private double accumulator;
+    private long frameDeadline;
+
+    private LoopMode runningMode;
+    private Thread updateThread;
+    private volatile boolean updating;
+    private volatile Throwable updateFailure;
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>();
+    // The snapshot picked up for the current frame, so that alpha and rendering agree
+    private Snapshot frameSnapshot;
+
+    /**
+     * Prepares for the first frame, starting the update thread in pipelined mode.
+     */
+    void start(Game game, GameWindow window) {
+        accumulator = 0;
+        frameDeadline = System.nanoTime();
+
+        runningMode = mode;
+        if (runningMode != LoopMode.PIPELINED)
+            return;
+
+        if (!(game instanceof PipelinedGame)) {
+            LOG.warn("{} is not a PipelinedGame, running it in fixed mode", game.getClass().getName());
+            runningMode = LoopMode.FIXED;
+            return;
+        }
+
+        PipelinedGame<?> pipelined = (PipelinedGame<?>) game;
+        snapshot.set(new Snapshot(pipelined.snapshot(), System.nanoTime()));
+        updateFailure = null;
+        updating = true;
+
+        updateThread = new Thread(() -> runUpdates(pipelined, window), "SJGF update");
+        updateThread.setDaemon(true);
+        updateThread.start();
+    }
+
+    /**
+     * Stops the update thread, if there is one, and waits for it to finish.
+     *
+     * @throws SJGFException if an update failed, which closes the window
+     * before {@link #update(Game, GameWindow, double)} may see it
+     */
+    void stop() {
+        if (updateThread == null)
+            return;
+
+        updating = false;
+        LockSupport.unpark(updateThread);
+        try {
+            updateThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        updateThread = null;
+        snapshot.set(null);
+        frameSnapshot = null;
+
+        Throwable failure = updateFailure;
+        updateFailure = null;
+        if (failure != null)
+            throw new SJGFException("Game update failed", failure);
+    }
+
+    private void runUpdates(PipelinedGame<?> game, GameWindow window) {
+        double step = fixedStep;
+        int maxUpdates = this.maxUpdates;
+        long stepNanos = (long) (step * TimeUnit.SECONDS.toNanos(1));
+        long next = System.nanoTime() + stepNanos;
+
+        try {
+            while (updating) {
+                long now = System.nanoTime();
+                if (now < next) {
+                    LockSupport.parkNanos(next - now);
+                    continue;
+                }
+
+                for (int updates = 0; now >= next && updates < maxUpdates; updates++) {
+                    game.update(window, step);
+                    next += stepNanos;
+                }
+
+                // Drop whatever could not be caught up on, as the fixed mode does
+                if (now >= next)
+                    next = now + stepNanos;
+
+                snapshot.set(new Snapshot(game.snapshot(), next - stepNanos));
+            }
+        } catch (Throwable t) {
+            updateFailure = t;
+            window.close();
+        }
+    }
+
+    /**
+     * Advances the game by the time that passed since the previous frame.
+     * In pipelined mode the game is not updated here; instead any failure on the
+     * update thread is rethrown.
+     *
+     * @return how far the current time is into the next fixed step, from 0 to 1
+     */
+    double update(Game game, GameWindow window, double elapsed) {
+        if (runningMode == LoopMode.VARIABLE) {
+            game.update(window, elapsed);
+            return 1;
+        }
+
+        if (runningMode == LoopMode.PIPELINED) {
+            if (updateFailure != null)
+                throw new SJGFException("Game update failed", updateFailure);
+
+            frameSnapshot = snapshot.get();
+            double alpha = (System.nanoTime() - frameSnapshot.time) / (fixedStep * TimeUnit.SECONDS.toNanos(1));
+            return Math.max(0, Math.min(1, alpha));
+        }
+
+        accumulator += elapsed;
+        for (int updates = 0; accumulator >= fixedStep; updates++) {
+            if (updates == maxUpdates) {
+                accumulator %= fixedStep;
+                break;
+            }
+
+            game.update(window, fixedStep);
+            accumulator -= fixedStep;
+        }
+
+        return accumulator / fixedStep;
+    }
+
+    /**
+     * Renders the game, in pipelined mode from the snapshot that the frame's
+     * call to {@link #update(Game, GameWindow, double)} picked up.
+     */
+    void render(Game game, GameWindow window, Graphics graphics, double alpha) {
+        if (runningMode == LoopMode.PIPELINED)
+            renderSnapshot((PipelinedGame<?>) game, window, graphics, alpha);
+        else
+            game.render(window, graphics, alpha);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <S> void renderSnapshot(PipelinedGame<S> game, GameWindow window, Graphics graphics, double alpha) {
+        game.render(window, graphics, (S) frameSnapshot.state, alpha);
+    }
+
+    /**
+     * Waits until the current frame has taken as long as the target frame rate allows.
+     */
+    void sync() {
+        if (targetFps == 0)
+            return;
+
+        long frameNanos = TimeUnit.SECONDS.toNanos(1) / targetFps;
+        long deadline = frameDeadline + frameNanos;
+        long now = System.nanoTime();
+
+        // A frame that ran over starts the next one from now instead of trying to make up for it
+        if (now >= deadline) {
+            frameDeadline = now;
+            return;
+        }
+
+        while (deadline - now > YIELD_NANOS) {
+            LockSupport.parkNanos(deadline - now - YIELD_NANOS);
+            now = System.nanoTime();
+        }
+
+        while (now < deadline) {
+            Thread.yield();
+            now = System.nanoTime();
+        }
+
+        frameDeadline = deadline;
+    }
+
+    private static final class Snapshot {
+        private final Object state;
+        private final long time;
+
+        private Snapshot(Object state, long time) {
+            this.state = state;
+            this.time = time;
+        }
+    }
+
+    LoopMode getMode() {
+        return mode;
+    }
+
+    void setMode(LoopMode mode) {
+        Args.notNull(mode, "mode");
+        this.mode = mode;
+    }
+
+    double getFixedStep() {
+        return fixedStep;
+    }
+
+    void setFixedStep(double step) {
+        if (!(step > 0))
+            throw new IllegalArgumentException("Fixed step must be positive");
+        this.fixedStep = step;
+    }
+
+    int getMaxUpdates() {
+        return maxUpdates;
+    }
+
+    void setMaxUpdates(int maxUpdates) {
+        if (maxUpdates < 1)
+            throw new IllegalArgumentException("Max updates must be positive");
+        this.maxUpdates = maxUpdates;
+    }
+
+    int getTargetFps() {
+        return targetFps;
+    }
+
+    void setTargetFps(int fps) {
+        if (fps < 0)
+            throw new IllegalArgumentException("Target FPS must not be negative");
+        this.targetFps = fps;
+    }
+}
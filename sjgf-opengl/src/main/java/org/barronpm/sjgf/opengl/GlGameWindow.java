@@ -18,7 +18,6 @@ package org.barronpm.sjgf.opengl;
 
 import org.barronpm.sjgf.*;
 import org.barronpm.sjgf.draw.Color;
-import org.barronpm.sjgf.draw.Texture;
 import org.barronpm.sjgf.exceptions.SJGFException;
 import org.barronpm.sjgf.opengl.draw.GlGraphics;
 import org.barronpm.sjgf.util.Args;
@@ -37,14 +36,17 @@ public final class GlGameWindow implements GameWindow {
 
     private Game game;
     private long window;
-    private ResourceLoader<Texture> textureLoader;
+    private GlTextureLoader textureLoader;
 
     private String title;
     private Monitor monitor;
     private boolean useVsync;
     private WindowState state;
+    private int batchCapacity = GlGraphics.DEFAULT_BATCH_CAPACITY;
+    private long maxBatchMemory = GlGraphics.DEFAULT_MAX_BATCH_MEMORY;
 
     private EventDispatcher eventDispatcher;
+    private final GlGameLoop loop = new GlGameLoop();
 
     public GlGameWindow() {
         if (!glfwInit())
@@ -69,32 +71,43 @@ public final class GlGameWindow implements GameWindow {
         glfwMakeContextCurrent(window);
         eventDispatcher = new EventDispatcher(this, window);
         GL.createCapabilities();
-        GlGraphics graphics = new GlGraphics(this);
-
-        game.init(this);
-        double previous = glfwGetTime();
-        while (!glfwWindowShouldClose(window)) {
-            double current = glfwGetTime();
-            double elapsed = current - previous;
-            previous = current;
-
-            glfwPollEvents();
-
-            game.update(this, elapsed);
-
-            glViewport(0, 0, getWidth(), getHeight());
-            Color color = game.getBackgroundColor();
-            glClearColor(color.getRed(), color.getGreen(), color.getBlue(), color.getAlpha());
-            glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
-
-            game.render(this, graphics);
-
-            graphics.draw();
-            glfwSwapBuffers(window);
+        GlGraphics graphics = new GlGraphics(getWidth(), getHeight(), batchCapacity, maxBatchMemory);
+        glfwSetWindowSizeCallback(window, graphics.getDefaultCamera());
+
+        try {
+            game.init(this);
+            loop.start(game, this);
+            double previous = glfwGetTime();
+            while (!glfwWindowShouldClose(window)) {
+                double current = glfwGetTime();
+                double elapsed = current - previous;
+                previous = current;
+
+                glfwPollEvents();
+                textureLoader.processUploads();
+
+                double alpha = loop.update(game, this, elapsed);
+
+                glViewport(0, 0, getWidth(), getHeight());
+                Color color = game.getBackgroundColor();
+                glClearColor(color.getRed(), color.getGreen(), color.getBlue(), color.getAlpha());
+                glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+
+                loop.render(game, this, graphics, alpha);
+
+                graphics.draw();
+                glfwSwapBuffers(window);
+                loop.sync();
+            }
+        } finally {
+            try {
+                loop.stop();
+            } finally {
+                game.dispose();
+                graphics.dispose();
+                textureLoader.dispose();
+            }
         }
-
-        game.dispose();
-        graphics.dispose();
     }
 
     @Override
@@ -262,10 +275,81 @@ public final class GlGameWindow implements GameWindow {
     }
 
     @Override
-    public ResourceLoader<Texture> getTextureLoader() {
+    public GlTextureLoader getTextureLoader() {
         return textureLoader;
     }
 
+    @Override
+    public LoopMode getLoopMode() {
+        return loop.getMode();
+    }
+
+    @Override
+    public void setLoopMode(LoopMode mode) {
+        loop.setMode(mode);
+    }
+
+    @Override
+    public double getFixedStep() {
+        return loop.getFixedStep();
+    }
+
+    @Override
+    public void setFixedStep(double step) {
+        loop.setFixedStep(step);
+    }
+
+    @Override
+    public int getMaxUpdatesPerFrame() {
+        return loop.getMaxUpdates();
+    }
+
+    @Override
+    public void setMaxUpdatesPerFrame(int maxUpdates) {
+        loop.setMaxUpdates(maxUpdates);
+    }
+
+    @Override
+    public int getTargetFps() {
+        return loop.getTargetFps();
+    }
+
+    @Override
+    public void setTargetFps(int fps) {
+        loop.setTargetFps(fps);
+    }
+
+    public int getBatchCapacity() {
+        return batchCapacity;
+    }
+
+    /**
+     * Sets the number of primitives each draw batch starts with room for.
+     * Takes effect when the window is started.
+     *
+     * @param batchCapacity the initial batch capacity
+     * @throws IllegalArgumentException if batchCapacity is not positive
+     */
+    public void setBatchCapacity(int batchCapacity) {
+        if (batchCapacity < 1)
+            throw new IllegalArgumentException("Batch capacity must be positive");
+        this.batchCapacity = batchCapacity;
+    }
+
+    public long getMaxBatchMemory() {
+        return maxBatchMemory;
+    }
+
+    /**
+     * Sets the most memory, in bytes, that a single draw batch may grow to use.
+     * Takes effect when the window is started.
+     *
+     * @param maxBatchMemory the memory ceiling of a batch
+     */
+    public void setMaxBatchMemory(long maxBatchMemory) {
+        this.maxBatchMemory = maxBatchMemory;
+    }
+
     public long getHandle() {
         return window;
     }
@@ -0,0 +1,491 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.opengl;
+
+import org.barronpm.sjgf.*;
+import org.barronpm.sjgf.draw.Color;
+import org.barronpm.sjgf.exceptions.SJGFException;
+import org.barronpm.sjgf.opengl.draw.GlGraphics;
+import org.barronpm.sjgf.util.Args;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL;
+
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.lwjgl.glfw.GLFW.*;
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL14.GL_DEPTH_COMPONENT24;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.system.MemoryUtil.NULL;
+
+/**
+ * A GameWindow that is never shown. Frames are rendered into an offscreen
+ * framebuffer and read back into a {@link ByteBuffer} after every frame, so
+ * games can be rendered, benchmarked and compared against reference images
+ * on machines without a monitor or GPU.
+ *
+ * Frames advance by a fixed time step instead of the wall clock, so the same
+ * game renders the same frames on every run. For the same reason the
+ * {@link LoopMode#PIPELINED} mode, which updates on a thread of its own, is
+ * not supported. If no native OpenGL 3.3 context
+ * can be created, an OSMesa software context is tried instead.
+ *
+ * The context is still created through GLFW, which cannot initialize without
+ * a display server. On machines without one, run under a virtual display such
+ * as Xvfb.
+ *
+ * No input events are produced, but listeners may still be added.
+ */
+public final class GlHeadlessWindow implements GameWindow {
+
+    public static final double DEFAULT_FRAME_TIME = 1.0 / 60.0;
+
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private Game game;
+    private long window;
+    private GlTextureLoader textureLoader;
+
+    private final Set<EventListener> listeners = new HashSet<>();
+    private final GlGameLoop loop = new GlGameLoop();
+
+    private String title;
+    private int x;
+    private int y;
+    private int width = 800;
+    private int height = 600;
+    private Monitor monitor;
+    private boolean useVsync;
+    private WindowState state;
+    private int batchCapacity = GlGraphics.DEFAULT_BATCH_CAPACITY;
+    private long maxBatchMemory = GlGraphics.DEFAULT_MAX_BATCH_MEMORY;
+
+    private double frameTime = DEFAULT_FRAME_TIME;
+    private long frameLimit = 0;
+    private long frameCount = 0;
+    private Consumer<ByteBuffer> frameListener;
+    private volatile boolean closed;
+
+    private int framebuffer;
+    private int colorBuffer;
+    private int depthBuffer;
+    private int framebufferWidth;
+    private int framebufferHeight;
+    private ByteBuffer pixels;
+
+    public GlHeadlessWindow() {
+        if (!glfwInit())
+            throw new SJGFException("Failed to initialize GLFW, which needs a display such as Xvfb");
+
+        glfwDefaultWindowHints();
+        glfwWindowHint(GLFW_VISIBLE, GLFW_FALSE);
+        glfwWindowHint(GLFW_CONTEXT_VERSION_MAJOR, 3);
+        glfwWindowHint(GLFW_CONTEXT_VERSION_MINOR, 3);
+        glfwWindowHint(GLFW_OPENGL_PROFILE, GLFW_OPENGL_CORE_PROFILE);
+
+        title = "SJGF";
+        state = WindowState.RESTORED;
+
+        // The window only provides a context, everything is drawn to the framebuffer
+        window = glfwCreateWindow(1, 1, title, NULL, NULL);
+        if (window == NULL) {
+            LOG.warn("No native OpenGL context available, falling back to OSMesa");
+            glfwWindowHint(GLFW_CONTEXT_CREATION_API, GLFW_OSMESA_CONTEXT_API);
+            window = glfwCreateWindow(1, 1, title, NULL, NULL);
+        }
+
+        if (window == NULL)
+            throw new SJGFException("Failed to create offscreen context");
+
+        textureLoader = new GlTextureLoader();
+    }
+
+    /**
+     * Renders frames until the window is closed or the frame limit is reached.
+     */
+    @Override
+    public void start() {
+        glfwMakeContextCurrent(window);
+        GL.createCapabilities();
+
+        framebuffer = glGenFramebuffers();
+        colorBuffer = glGenRenderbuffers();
+        depthBuffer = glGenRenderbuffers();
+        try {
+            resizeFramebuffer();
+            GlGraphics graphics = new GlGraphics(width, height, batchCapacity, maxBatchMemory);
+            try {
+                run(graphics);
+            } finally {
+                graphics.dispose();
+            }
+        } finally {
+            textureLoader.dispose();
+
+            glBindFramebuffer(GL_FRAMEBUFFER, 0);
+            glDeleteFramebuffers(framebuffer);
+            glDeleteRenderbuffers(colorBuffer);
+            glDeleteRenderbuffers(depthBuffer);
+        }
+    }
+
+    private void run(GlGraphics graphics) {
+        closed = false;
+        frameCount = 0;
+
+        try {
+            game.init(this);
+            loop.start(game, this);
+            while (!closed && (frameLimit == 0 || frameCount < frameLimit)) {
+                if (width != framebufferWidth || height != framebufferHeight) {
+                    resizeFramebuffer();
+                    graphics.getDefaultCamera().setSize(width, height);
+                }
+
+                textureLoader.processUploads();
+                double alpha = loop.update(game, this, frameTime);
+
+                glViewport(0, 0, framebufferWidth, framebufferHeight);
+                Color color = game.getBackgroundColor();
+                glClearColor(color.getRed(), color.getGreen(), color.getBlue(), color.getAlpha());
+                glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+
+                loop.render(game, this, graphics, alpha);
+
+                graphics.draw();
+                readPixels();
+                frameCount++;
+
+                if (frameListener != null)
+                    frameListener.accept(pixels.asReadOnlyBuffer());
+
+                loop.sync();
+            }
+        } finally {
+            try {
+                loop.stop();
+            } finally {
+                game.dispose();
+            }
+        }
+    }
+
+    private void resizeFramebuffer() {
+        framebufferWidth = width;
+        framebufferHeight = height;
+
+        glBindRenderbuffer(GL_RENDERBUFFER, colorBuffer);
+        glRenderbufferStorage(GL_RENDERBUFFER, GL_RGBA8, width, height);
+        glBindRenderbuffer(GL_RENDERBUFFER, depthBuffer);
+        glRenderbufferStorage(GL_RENDERBUFFER, GL_DEPTH_COMPONENT24, width, height);
+        glBindRenderbuffer(GL_RENDERBUFFER, 0);
+
+        glBindFramebuffer(GL_FRAMEBUFFER, framebuffer);
+        glFramebufferRenderbuffer(GL_FRAMEBUFFER, GL_COLOR_ATTACHMENT0, GL_RENDERBUFFER, colorBuffer);
+        glFramebufferRenderbuffer(GL_FRAMEBUFFER, GL_DEPTH_ATTACHMENT, GL_RENDERBUFFER, depthBuffer);
+
+        if (glCheckFramebufferStatus(GL_FRAMEBUFFER) != GL_FRAMEBUFFER_COMPLETE)
+            throw new SJGFException("Failed to create offscreen framebuffer");
+
+        pixels = BufferUtils.createByteBuffer(width * height * BYTES_PER_PIXEL);
+    }
+
+    private void readPixels() {
+        // The address GL writes to depends on the position, so the buffer is never handed out itself
+        pixels.clear();
+        glPixelStorei(GL_PACK_ALIGNMENT, 1);
+        glReadPixels(0, 0, framebufferWidth, framebufferHeight, GL_RGBA, GL_UNSIGNED_BYTE, pixels);
+    }
+
+    /**
+     * Returns the pixels of the last rendered frame as tightly packed RGBA8
+     * values, starting from the bottom-left corner. The returned buffer is a
+     * read-only view whose contents are overwritten by each frame; a new buffer
+     * is used once the window is resized.
+     *
+     * @return the pixels of the last frame, or <code>null</code> before the first frame
+     */
+    public ByteBuffer getPixels() {
+        return pixels == null ? null : pixels.asReadOnlyBuffer();
+    }
+
+    /**
+     * Sets a listener that receives the pixels of every frame as it is
+     * rendered, in the format described by {@link #getPixels()}. Its contents
+     * are overwritten by the next frame, so it should be copied to be kept.
+     *
+     * @param frameListener the listener, or <code>null</code> to remove it
+     */
+    public void setFrameListener(Consumer<ByteBuffer> frameListener) {
+        this.frameListener = frameListener;
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    public long getFrameLimit() {
+        return frameLimit;
+    }
+
+    /**
+     * Sets the number of frames to render before {@link #start()} returns.
+     *
+     * @param frameLimit the number of frames to render, or 0 to render until closed
+     * @throws IllegalArgumentException if frameLimit is negative
+     */
+    public void setFrameLimit(long frameLimit) {
+        if (frameLimit < 0)
+            throw new IllegalArgumentException("Frame limit must not be negative");
+        this.frameLimit = frameLimit;
+    }
+
+    public double getFrameTime() {
+        return frameTime;
+    }
+
+    /**
+     * Sets the time, in seconds, that passes between frames.
+     *
+     * @param frameTime the time between frames
+     * @throws IllegalArgumentException if frameTime is not positive
+     */
+    public void setFrameTime(double frameTime) {
+        if (!(frameTime > 0))
+            throw new IllegalArgumentException("Frame time must be positive");
+        this.frameTime = frameTime;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    @Override
+    public void addListener(EventListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(EventListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public Set<EventListener> getListeners() {
+        return new HashSet<>(listeners);
+    }
+
+    @Override
+    public int getX() {
+        return x;
+    }
+
+    @Override
+    public void setX(int x) {
+        this.x = x;
+    }
+
+    @Override
+    public int getY() {
+        return y;
+    }
+
+    @Override
+    public void setY(int y) {
+        this.y = y;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public void setWidth(int width) {
+        if (width < 1)
+            throw new IllegalArgumentException("Width must be positive");
+        this.width = width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public void setHeight(int height) {
+        if (height < 1)
+            throw new IllegalArgumentException("Height must be positive");
+        this.height = height;
+    }
+
+    @Override
+    public String getTitle() {
+        return title;
+    }
+
+    @Override
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    @Override
+    public boolean isUsingVSync() {
+        return useVsync;
+    }
+
+    @Override
+    public void setUseVSync(boolean useVSync) {
+        this.useVsync = useVSync;
+    }
+
+    @Override
+    public Monitor getMonitor() {
+        return monitor;
+    }
+
+    @Override
+    public void setMonitor(Monitor monitor) {
+        this.monitor = monitor;
+    }
+
+    @Override
+    public WindowState getState() {
+        return state;
+    }
+
+    @Override
+    public void setState(WindowState state) {
+        Args.notNull(state, "state");
+        this.state = state;
+    }
+
+    @Override
+    public boolean isVisible() {
+        return false;
+    }
+
+    @Override
+    public boolean isResizable() {
+        return false;
+    }
+
+    @Override
+    public Game getGame() {
+        return game;
+    }
+
+    @Override
+    public void setGame(Game game) {
+        Args.notNull(game, "game");
+        this.game = game;
+    }
+
+    @Override
+    public GlTextureLoader getTextureLoader() {
+        return textureLoader;
+    }
+
+    @Override
+    public LoopMode getLoopMode() {
+        return loop.getMode();
+    }
+
+    /**
+     * Sets how this window advances its game between frames.
+     *
+     * @param mode the new loop mode
+     * @throws NullPointerException if mode is <code>null</code>
+     * @throws IllegalArgumentException if mode is {@link LoopMode#PIPELINED}, whose
+     * updates run on the wall clock and would make frames differ between runs
+     */
+    @Override
+    public void setLoopMode(LoopMode mode) {
+        if (mode == LoopMode.PIPELINED)
+            throw new IllegalArgumentException("Headless windows can't use pipelined updates");
+        loop.setMode(mode);
+    }
+
+    @Override
+    public double getFixedStep() {
+        return loop.getFixedStep();
+    }
+
+    @Override
+    public void setFixedStep(double step) {
+        loop.setFixedStep(step);
+    }
+
+    @Override
+    public int getMaxUpdatesPerFrame() {
+        return loop.getMaxUpdates();
+    }
+
+    @Override
+    public void setMaxUpdatesPerFrame(int maxUpdates) {
+        loop.setMaxUpdates(maxUpdates);
+    }
+
+    @Override
+    public int getTargetFps() {
+        return loop.getTargetFps();
+    }
+
+    @Override
+    public void setTargetFps(int fps) {
+        loop.setTargetFps(fps);
+    }
+
+    public int getBatchCapacity() {
+        return batchCapacity;
+    }
+
+    /**
+     * Sets the number of primitives each draw batch starts with room for.
+     * Takes effect when the window is started.
+     *
+     * @param batchCapacity the initial batch capacity
+     * @throws IllegalArgumentException if batchCapacity is not positive
+     */
+    public void setBatchCapacity(int batchCapacity) {
+        if (batchCapacity < 1)
+            throw new IllegalArgumentException("Batch capacity must be positive");
+        this.batchCapacity = batchCapacity;
+    }
+
+    public long getMaxBatchMemory() {
+        return maxBatchMemory;
+    }
+
+    /**
+     * Sets the most memory, in bytes, that a single draw batch may grow to use.
+     * Takes effect when the window is started.
+     *
+     * @param maxBatchMemory the memory ceiling of a batch
+     */
+    public void setMaxBatchMemory(long maxBatchMemory) {
+        this.maxBatchMemory = maxBatchMemory;
+    }
+
+    public long getHandle() {
+        return window;
+    }
+}
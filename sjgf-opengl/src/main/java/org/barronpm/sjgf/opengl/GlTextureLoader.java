@@ -16,39 +16,396 @@
 
 package org.barronpm.sjgf.opengl;
 
+import org.barronpm.sjgf.Disposable;
 import org.barronpm.sjgf.ResourceLoader;
 import org.barronpm.sjgf.draw.Texture;
+import org.barronpm.sjgf.exceptions.SJGFException;
+import org.barronpm.sjgf.opengl.draw.GlCompressedImage;
+import org.barronpm.sjgf.opengl.draw.GlSampler;
 import org.barronpm.sjgf.opengl.draw.GlTexture;
+import org.barronpm.sjgf.opengl.draw.GlTextureCache;
+import org.barronpm.sjgf.util.Args;
 import org.lwjgl.system.MemoryStack;
 
 import java.io.File;
+import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
 
-import static org.lwjgl.stb.STBImage.stbi_load;
-import static org.lwjgl.stb.STBImage.stbi_set_flip_vertically_on_load;
+import static org.lwjgl.stb.STBImage.*;
+import static org.lwjgl.system.MemoryUtil.memAlloc;
+import static org.lwjgl.system.MemoryUtil.memFree;
 
-public class GlTextureLoader implements ResourceLoader<Texture> {
+/**
+ * Loads textures with stb_image. KTX and DDS containers holding block compressed
+ * images are read by {@link GlCompressedImage} and uploaded without decoding.
+ *
+ * Loaded textures are shared through a {@link GlTextureCache}, keyed by the
+ * file's canonical path and a hash of its contents, so loading the same image
+ * twice returns the same texture, while a file that changed on disk is loaded
+ * anew. Each loaded texture must be disposed once it is no longer needed.
+ *
+ * Loaded textures are given the loader's {@link #getSampler() sampler}, which
+ * is part of the cache key, so the same image loaded with two samplers yields
+ * two textures. Mipmaps are generated on upload when the sampler needs them.
+ *
+ * {@link #loadAsync(File)} decodes images on worker threads and queues them for
+ * upload. Queued images are uploaded on the GL thread by
+ * {@link #processUploads()}, which the window calls once per frame and which
+ * stops once the frame's upload budget is spent, so that loading many textures
+ * spreads over several frames instead of stalling one.
+ */
+public class GlTextureLoader implements ResourceLoader<Texture>, Disposable {
+
+    /**
+     * The default time, in nanoseconds, spent uploading textures each frame.
+     */
+    public static final long DEFAULT_UPLOAD_BUDGET = TimeUnit.MILLISECONDS.toNanos(4);
 
-    private final ExecutorService threadPool = Executors.newFixedThreadPool(10);
+    private final ExecutorService decoders;
+    private final Queue<Upload> uploads = new ConcurrentLinkedQueue<>();
+    private final GlTextureCache cache = new GlTextureCache();
+    // Guards disposed, so that no upload is queued once dispose has drained the queue
+    private final Object uploadLock = new Object();
+    private boolean disposed = false;
+
+    private long uploadBudget = DEFAULT_UPLOAD_BUDGET;
+    private volatile GlSampler sampler = GlSampler.DEFAULT;
 
     public GlTextureLoader() {
         stbi_set_flip_vertically_on_load(true);
+
+        AtomicInteger threads = new AtomicInteger();
+        decoders = Executors.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "SJGF texture decoder " + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
     }
 
     @Override
     public Texture load(File file) {
-        MemoryStack stack = MemoryStack.stackPush();
-        IntBuffer x = stack.mallocInt(1);
-        IntBuffer y = stack.mallocInt(1);
-        IntBuffer channels = stack.mallocInt(1);
+        return load(file, sampler);
+    }
+
+    /**
+     * Loads a texture that is sampled with the given sampler.
+     *
+     * @param file the file to load from
+     * @param sampler the sampler for the texture
+     * @return the loaded texture
+     */
+    public Texture load(File file, GlSampler sampler) {
+        Args.notNull(file, "file");
+        Args.notNull(sampler, "sampler");
+
+        ByteBuffer contents = read(file);
+        try {
+            String key = key(file, contents, sampler);
+            GlTexture texture = cache.get(key);
+            if (texture != null)
+                return texture;
+
+            return cache.put(key, createTexture(decode(file, contents), sampler));
+        } finally {
+            memFree(contents);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Texture> loadAsync(File file) {
+        Args.notNull(file, "file");
+
+        DecodeTask task = new DecodeTask(file, sampler);
+        decoders.execute(task);
+        return task.future;
+    }
+
+    /**
+     * Uploads decoded textures until the upload budget for this frame is spent.
+     * At least one texture is uploaded if any are waiting, so that a texture
+     * larger than the budget still loads. Must be called on the GL thread.
+     */
+    public void processUploads() {
+        long deadline = System.nanoTime() + uploadBudget;
+
+        Upload upload;
+        while ((upload = uploads.poll()) != null) {
+            try {
+                upload.future.complete(upload.upload());
+            } catch (RuntimeException e) {
+                upload.future.completeExceptionally(e);
+            }
+
+            if (System.nanoTime() >= deadline)
+                break;
+        }
+    }
+
+    /**
+     * Returns the cache that loaded textures are shared through.
+     *
+     * @return the texture cache
+     */
+    public GlTextureCache getCache() {
+        return cache;
+    }
+
+    public GlSampler getSampler() {
+        return sampler;
+    }
+
+    /**
+     * Sets the sampler given to textures loaded from now on.
+     *
+     * @param sampler the sampler for loaded textures
+     */
+    public void setSampler(GlSampler sampler) {
+        Args.notNull(sampler, "sampler");
+        this.sampler = sampler;
+    }
+
+    public long getUploadBudget() {
+        return uploadBudget;
+    }
+
+    /**
+     * Sets the time, in nanoseconds, that {@link #processUploads()} may spend
+     * uploading textures each frame.
+     *
+     * @param uploadBudget the upload time per frame
+     * @throws IllegalArgumentException if uploadBudget is negative
+     */
+    public void setUploadBudget(long uploadBudget) {
+        if (uploadBudget < 0)
+            throw new IllegalArgumentException("Upload budget must not be negative");
+        this.uploadBudget = uploadBudget;
+    }
+
+    @Override
+    public void dispose() {
+        synchronized (uploadLock) {
+            disposed = true;
+        }
+
+        for (Runnable task : decoders.shutdownNow())
+            ((DecodeTask) task).future.cancel(false);
+
+        Upload upload;
+        while ((upload = uploads.poll()) != null) {
+            if (upload.image != null)
+                upload.image.free();
+            upload.future.cancel(false);
+        }
+
+        cache.clear();
+    }
+
+    private static ByteBuffer read(File file) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE)
+                throw new SJGFException("File too large: " + file);
 
-        ByteBuffer buffer = stbi_load(file.getPath(), x, y, channels, 0);
-        GlTexture texture = new GlTexture(x.get(), y.get(), channels.get() == 4, buffer);
-        stack.pop();
+            ByteBuffer contents = memAlloc((int) size);
+            try {
+                while (contents.hasRemaining()) {
+                    if (channel.read(contents) == -1)
+                        break;
+                }
+            } catch (IOException e) {
+                memFree(contents);
+                throw e;
+            }
 
+            contents.flip();
+            return contents;
+        } catch (IOException e) {
+            throw new SJGFException("Failed to read " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static String key(File file, ByteBuffer contents, GlSampler sampler) {
+        CRC32 crc = new CRC32();
+        crc.update(contents.duplicate());
+
+        try {
+            return file.getCanonicalPath() + '#' + Long.toHexString(crc.getValue()) + '#' + sampler;
+        } catch (IOException e) {
+            throw new SJGFException("Failed to resolve " + file + ": " + e.getMessage());
+        }
+    }
+
+    private static GlTexture createTexture(DecodedImage image, GlSampler sampler) {
+        GlTexture texture = image.upload();
+        texture.setSampler(sampler);
         return texture;
     }
+
+    private static DecodedImage decode(File file, ByteBuffer contents) {
+        if (GlCompressedImage.isContainer(contents)) {
+            GlCompressedImage image;
+            try {
+                image = GlCompressedImage.parse(contents);
+            } catch (SJGFException e) {
+                throw new SJGFException("Failed to load " + file + ": " + e.getMessage(), e);
+            }
+            return new CompressedImage(image);
+        }
+
+        MemoryStack stack = MemoryStack.stackPush();
+        try {
+            IntBuffer x = stack.mallocInt(1);
+            IntBuffer y = stack.mallocInt(1);
+            IntBuffer channels = stack.mallocInt(1);
+
+            ByteBuffer buffer = stbi_load_from_memory(contents, x, y, channels, 0);
+            if (buffer == null)
+                throw new SJGFException("Failed to load " + file + ": " + stbi_failure_reason());
+
+            return new StbImage(x.get(), y.get(), channels.get(), buffer);
+        } finally {
+            stack.pop();
+        }
+    }
+
+    private interface DecodedImage {
+
+        /**
+         * Uploads the image to a new texture and frees it.
+         */
+        GlTexture upload();
+
+        void free();
+    }
+
+    private static final class StbImage implements DecodedImage {
+        private final int width;
+        private final int height;
+        private final int channels;
+        private final ByteBuffer data;
+
+        private StbImage(int width, int height, int channels, ByteBuffer data) {
+            this.width = width;
+            this.height = height;
+            this.channels = channels;
+            this.data = data;
+        }
+
+        @Override
+        public GlTexture upload() {
+            try {
+                return new GlTexture(width, height, channels == 4, data);
+            } finally {
+                free();
+            }
+        }
+
+        @Override
+        public void free() {
+            stbi_image_free(data);
+        }
+    }
+
+    private static final class CompressedImage implements DecodedImage {
+        private final GlCompressedImage image;
+
+        private CompressedImage(GlCompressedImage image) {
+            this.image = image;
+        }
+
+        @Override
+        public GlTexture upload() {
+            try {
+                return image.upload();
+            } finally {
+                free();
+            }
+        }
+
+        @Override
+        public void free() {
+            image.free();
+        }
+    }
+
+    private final class DecodeTask implements Runnable {
+        private final File file;
+        private final GlSampler sampler;
+        private final CompletableFuture<Texture> future = new CompletableFuture<>();
+
+        private DecodeTask(File file, GlSampler sampler) {
+            this.file = file;
+            this.sampler = sampler;
+        }
+
+        @Override
+        public void run() {
+            ByteBuffer contents = null;
+            try {
+                contents = read(file);
+                String key = key(file, contents, sampler);
+                DecodedImage image = cache.contains(key) ? null : decode(file, contents);
+
+                synchronized (uploadLock) {
+                    if (!disposed) {
+                        uploads.add(new Upload(file, key, sampler, image, future));
+                        return;
+                    }
+                }
+
+                if (image != null)
+                    image.free();
+                future.cancel(false);
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            } finally {
+                if (contents != null)
+                    memFree(contents);
+            }
+        }
+    }
+
+    private final class Upload {
+        private final File file;
+        private final String key;
+        private final GlSampler sampler;
+        private final DecodedImage image;
+        private final CompletableFuture<Texture> future;
+
+        private Upload(File file, String key, GlSampler sampler, DecodedImage image,
+                       CompletableFuture<Texture> future) {
+            this.file = file;
+            this.key = key;
+            this.sampler = sampler;
+            this.image = image;
+            this.future = future;
+        }
+
+        private Texture upload() {
+            GlTexture texture = cache.get(key);
+            if (texture != null) {
+                if (image != null)
+                    image.free();
+                return texture;
+            }
+
+            // The texture was cached when decoding was skipped, but has since been evicted
+            if (image == null)
+                return load(file, sampler);
+
+            return cache.put(key, createTexture(image, sampler));
+        }
+    }
 }
@@ -0,0 +1,284 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.opengl.draw;
+
+import org.lwjgl.system.MemoryStack;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.lwjgl.stb.STBImage.*;
+import static org.lwjgl.system.MemoryUtil.memCalloc;
+import static org.lwjgl.system.MemoryUtil.memFree;
+
+/**
+ * Bakes a directory of images into a file that {@link GlBakedAtlas} can load
+ * without decoding or packing anything. Runs without OpenGL, so it can be
+ * used as a build step.
+ *
+ * Usage: <code>AtlasBaker [--page-size N] [--padding N] [--no-extrude] &lt;input directory&gt; &lt;output file&gt;</code>
+ */
+public final class AtlasBaker {
+
+    private static final String[] EXTENSIONS = {".png", ".jpg", ".jpeg", ".bmp", ".tga", ".gif", ".psd"};
+
+    private final int pageSize;
+    private final int padding;
+    private final boolean extrude;
+
+    /**
+     * Creates a baker that packs images into square pages.
+     *
+     * @param pageSize the width and height of each page, in pixels
+     * @param padding the space left around each image, in pixels
+     * @param extrude whether the padding repeats the image's edge pixels
+     * @throws IllegalArgumentException if pageSize is not between 1 and
+     * {@link GlBakedAtlas#MAX_PAGE_SIZE}, or padding is negative
+     */
+    public AtlasBaker(int pageSize, int padding, boolean extrude) {
+        if (pageSize < 1 || pageSize > GlBakedAtlas.MAX_PAGE_SIZE)
+            throw new IllegalArgumentException("Page size must be between 1 and " + GlBakedAtlas.MAX_PAGE_SIZE);
+        if (padding < 0)
+            throw new IllegalArgumentException("Padding must not be negative");
+
+        this.pageSize = pageSize;
+        this.padding = padding;
+        this.extrude = extrude;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int pageSize = GlTextureAtlas.DEFAULT_PAGE_SIZE;
+        int padding = GlTextureAtlas.DEFAULT_PADDING;
+        boolean extrude = true;
+
+        int i = 0;
+        for (; i < args.length && args[i].startsWith("--"); i++) {
+            switch (args[i]) {
+                case "--page-size":
+                    pageSize = Integer.parseInt(args[++i]);
+                    break;
+                case "--padding":
+                    padding = Integer.parseInt(args[++i]);
+                    break;
+                case "--no-extrude":
+                    extrude = false;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        if (args.length - i != 2) {
+            System.err.println("Usage: AtlasBaker [--page-size N] [--padding N] [--no-extrude] <input directory> <output file>");
+            System.exit(1);
+        }
+
+        new AtlasBaker(pageSize, padding, extrude).bake(Paths.get(args[i]), Paths.get(args[i + 1]));
+    }
+
+    /**
+     * Packs every image under the input directory and writes the baked atlas.
+     *
+     * @param input the directory to search for images
+     * @param output the file to write
+     * @throws IOException if an image cannot be read or the output cannot be written
+     */
+    public void bake(Path input, Path output) throws IOException {
+        List<Image> images = new ArrayList<>();
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(input)) {
+            files = walk.filter(Files::isRegularFile)
+                    .filter(AtlasBaker::isImage)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        Map<String, Path> names = new HashMap<>();
+        for (Path file : files) {
+            Path other = names.put(name(input, file), file);
+            if (other != null)
+                throw new IOException(other + " and " + file + " would be baked under the same name");
+        }
+
+        List<ByteBuffer> pages = new ArrayList<>();
+        try {
+            for (Path file : files)
+                images.add(decode(input, file));
+
+            // Placing large images first packs noticeably tighter
+            images.sort(Comparator.comparingInt((Image image) -> Math.max(image.width, image.height))
+                    .reversed()
+                    .thenComparing(image -> image.name));
+
+            List<SkylinePacker> packers = new ArrayList<>();
+            for (Image image : images) {
+                int paddedWidth = image.width + padding * 2;
+                int paddedHeight = image.height + padding * 2;
+                if (paddedWidth > pageSize || paddedHeight > pageSize)
+                    throw new IOException(image.name + " is larger than an atlas page");
+
+                long position = -1;
+                int page = 0;
+                for (; page < packers.size(); page++) {
+                    position = packers.get(page).pack(paddedWidth, paddedHeight);
+                    if (position >= 0)
+                        break;
+                }
+
+                if (position < 0) {
+                    packers.add(new SkylinePacker(pageSize, pageSize));
+                    pages.add(memCalloc(pageSize * pageSize * 4));
+                    position = packers.get(page).pack(paddedWidth, paddedHeight);
+                }
+
+                int x = (int) (position >>> 32);
+                int y = (int) position;
+                GlTextureAtlas.writePadded(image.pixels, image.width, image.height, padding, extrude,
+                        pages.get(page), pageSize, x, y);
+
+                image.page = page;
+                image.x = x + padding;
+                image.y = y + padding;
+            }
+
+            write(output, images, pages);
+        } finally {
+            images.forEach(image -> stbi_image_free(image.pixels));
+            pages.forEach(page -> memFree(page));
+        }
+    }
+
+    private void write(Path output, List<Image> images, List<ByteBuffer> pages) throws IOException {
+        int indexSize = 28;
+        for (Image image : images)
+            indexSize += 2 + image.encodedName.length + 5 * Integer.BYTES;
+
+        long pageOffset = (indexSize + GlBakedAtlas.PAGE_ALIGNMENT - 1)
+                / GlBakedAtlas.PAGE_ALIGNMENT * GlBakedAtlas.PAGE_ALIGNMENT;
+
+        ByteBuffer index = ByteBuffer.allocate((int) pageOffset).order(ByteOrder.LITTLE_ENDIAN);
+        index.putInt(GlBakedAtlas.MAGIC)
+                .putInt(GlBakedAtlas.VERSION)
+                .putInt(pageSize)
+                .putInt(pages.size())
+                .putInt(images.size())
+                .putLong(pageOffset);
+
+        for (Image image : images) {
+            index.putShort((short) image.encodedName.length)
+                    .put(image.encodedName)
+                    .putInt(image.page)
+                    .putInt(image.x)
+                    .putInt(image.y)
+                    .putInt(image.width)
+                    .putInt(image.height);
+        }
+        index.rewind();
+
+        Path parent = output.toAbsolutePath().getParent();
+        if (parent != null)
+            Files.createDirectories(parent);
+
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, index);
+            for (ByteBuffer page : pages)
+                writeFully(channel, page.duplicate());
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    private static boolean isImage(Path file) {
+        String name = file.getFileName().toString().toLowerCase();
+        for (String extension : EXTENSIONS) {
+            if (name.endsWith(extension))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the name an image is baked under, its path relative to the input
+     * directory with '/' separators and without its extension.
+     */
+    private static String name(Path input, Path file) {
+        String name = input.relativize(file).toString().replace(File.separatorChar, '/');
+        return name.substring(0, name.lastIndexOf('.'));
+    }
+
+    private static Image decode(Path input, Path file) throws IOException {
+        String name = name(input, file);
+        if (name.getBytes(StandardCharsets.UTF_8).length > 0xFFFF)
+            throw new IOException("Image name too long: " + name);
+
+        MemoryStack stack = MemoryStack.stackPush();
+        try {
+            IntBuffer width = stack.mallocInt(1);
+            IntBuffer height = stack.mallocInt(1);
+            IntBuffer channels = stack.mallocInt(1);
+
+            stbi_set_flip_vertically_on_load(true);
+            ByteBuffer pixels = stbi_load(file.toString(), width, height, channels, 4);
+            if (pixels == null)
+                throw new IOException("Failed to load " + file + ": " + stbi_failure_reason());
+
+            return new Image(name, width.get(0), height.get(0), pixels);
+        } finally {
+            stack.pop();
+        }
+    }
+
+    private static final class Image {
+        private final String name;
+        private final byte[] encodedName;
+        private final int width;
+        private final int height;
+        private final ByteBuffer pixels;
+
+        private int page;
+        private int x;
+        private int y;
+
+        private Image(String name, int width, int height, ByteBuffer pixels) {
+            this.name = name;
+            this.encodedName = name.getBytes(StandardCharsets.UTF_8);
+            this.width = width;
+            this.height = height;
+            this.pixels = pixels;
+        }
+    }
+}
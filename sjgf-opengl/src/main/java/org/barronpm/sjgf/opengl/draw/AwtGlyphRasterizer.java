@@ -0,0 +1,107 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.opengl.draw;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+/**
+ * Rasterizes glyphs of any {@link Font} through Java 2D.
+ */
+class AwtGlyphRasterizer implements GlyphRasterizer {
+
+    private final Graphics2D graphics;
+    private final FontMetrics metrics;
+
+    private final BufferedImage scratch;
+    private final Graphics2D scratchGraphics;
+    private final int padding;
+
+    AwtGlyphRasterizer(Font font, int padding) {
+        this.padding = padding;
+
+        BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+        graphics = image.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        graphics.setFont(font);
+        metrics = graphics.getFontMetrics();
+
+        // Glyphs are assumed to be at most twice as wide as they are tall; wider ones are cut off
+        scratch = new BufferedImage(getMaxGlyphWidth(), metrics.getHeight() + padding * 2,
+                BufferedImage.TYPE_INT_ARGB);
+        scratchGraphics = scratch.createGraphics();
+        scratchGraphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        scratchGraphics.setFont(font);
+        scratchGraphics.setColor(Color.WHITE);
+        scratchGraphics.setBackground(new Color(0, 0, 0, 0));
+    }
+
+    @Override
+    public int getLineHeight() {
+        return metrics.getHeight();
+    }
+
+    @Override
+    public int getTextHeight(String text) {
+        return (int) metrics.getLineMetrics(text, graphics).getHeight();
+    }
+
+    @Override
+    public float getKerning(int left, int right) {
+        // Glyphs are placed by their advances alone, as Java 2D does without TextAttribute.KERNING
+        return 0;
+    }
+
+    @Override
+    public int getMaxGlyphWidth() {
+        return metrics.getHeight() * 2 + padding * 2;
+    }
+
+    @Override
+    public boolean isFiltered() {
+        return false;
+    }
+
+    @Override
+    public GlyphImage rasterize(int codePoint, boolean distanceField, int spread) {
+        int charWidth = metrics.charWidth(codePoint);
+        if (charWidth <= 0)
+            return new GlyphImage(0);
+
+        int width = Math.min(charWidth + padding * 2, scratch.getWidth());
+        int height = scratch.getHeight();
+
+        scratchGraphics.clearRect(0, 0, scratch.getWidth(), height);
+        scratchGraphics.drawString(new String(Character.toChars(codePoint)), padding, padding + metrics.getAscent());
+
+        int[] image = ((DataBufferInt) scratch.getRaster().getDataBuffer()).getData();
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++)
+            System.arraycopy(image, y * scratch.getWidth(), pixels, y * width, width);
+        if (distanceField)
+            DistanceField.compute(pixels, width, height, spread);
+
+        return new GlyphImage(pixels, width, height, charWidth, -padding, -padding, width, height);
+    }
+
+    @Override
+    public void dispose() {
+        graphics.dispose();
+        scratchGraphics.dispose();
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.opengl.draw;
+
+/**
+ * Computes signed distance fields from glyph coverage, using the linear time
+ * Euclidean distance transform of Felzenszwalb and Huttenlocher.
+ *
+ * The field stores 0.5 on the glyph's edge, rising to 1 at <code>spread</code>
+ * pixels inside it and falling to 0 at <code>spread</code> pixels outside.
+ */
+final class DistanceField {
+
+    private static final float INFINITY = 1e20f;
+
+    private DistanceField() {}
+
+    /**
+     * Converts the alpha of ARGB pixels into a distance field, in place. Pixels
+     * become white, with the distance stored in alpha.
+     */
+    static void compute(int[] argb, int width, int height, int spread) {
+        int size = width * height;
+        float[] outside = new float[size];
+        float[] inside = new float[size];
+        for (int i = 0; i < size; i++) {
+            boolean in = (argb[i] >>> 24) >= 128;
+            outside[i] = in ? 0 : INFINITY;
+            inside[i] = in ? INFINITY : 0;
+        }
+
+        transform(outside, width, height);
+        transform(inside, width, height);
+
+        for (int i = 0; i < size; i++) {
+            float distance = (float) (Math.sqrt(outside[i]) - Math.sqrt(inside[i]));
+            float value = Math.max(0, Math.min(1, .5f - distance / (2 * spread)));
+            argb[i] = Math.round(value * 255) << 24 | 0xFFFFFF;
+        }
+    }
+
+    /**
+     * Replaces each value with the squared distance to the nearest zero.
+     */
+    private static void transform(float[] grid, int width, int height) {
+        int length = Math.max(width, height);
+        float[] f = new float[length];
+        float[] d = new float[length];
+        int[] v = new int[length];
+        float[] z = new float[length + 1];
+
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++)
+                f[y] = grid[y * width + x];
+            transform(f, d, v, z, height);
+            for (int y = 0; y < height; y++)
+                grid[y * width + x] = d[y];
+        }
+
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(grid, y * width, f, 0, width);
+            transform(f, d, v, z, width);
+            System.arraycopy(d, 0, grid, y * width, width);
+        }
+    }
+
+    private static void transform(float[] f, float[] d, int[] v, float[] z, int n) {
+        int k = 0;
+        v[0] = 0;
+        z[0] = -INFINITY;
+        z[1] = INFINITY;
+
+        for (int q = 1; q < n; q++) {
+            float s = intersection(f, v[k], q);
+            while (s <= z[k]) {
+                k--;
+                s = intersection(f, v[k], q);
+            }
+            k++;
+            v[k] = q;
+            z[k] = s;
+            z[k + 1] = INFINITY;
+        }
+
+        k = 0;
+        for (int q = 0; q < n; q++) {
+            while (z[k + 1] < q)
+                k++;
+            int offset = q - v[k];
+            d[q] = offset * offset + f[v[k]];
+        }
+    }
+
+    private static float intersection(float[] f, int p, int q) {
+        return ((f[q] + q * q) - (f[p] + p * p)) / (2 * q - 2 * p);
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.opengl.draw;
+
+import org.barronpm.sjgf.Disposable;
+import org.barronpm.sjgf.draw.TextureRegion;
+import org.barronpm.sjgf.exceptions.SJGFException;
+import org.barronpm.sjgf.util.Args;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * A texture atlas baked ahead of time by {@link AtlasBaker}.
+ *
+ * The baked file is memory-mapped and its pages are uploaded straight from
+ * the mapping, so loading involves no image decoding and no copies on the
+ * Java side.
+ *
+ * The file is little-endian and laid out as follows:
+ * <pre>
+ * int     magic ("SJGA")
+ * int     version
+ * int     page size
+ * int     page count
+ * int     region count
+ * long    offset of the first page
+ * regions, each:
+ *   short   name length
+ *   byte[]  name, UTF-8
+ *   int     page, x, y, width, height
+ * pages, each page size * page size RGBA8 pixels, rows from bottom to top
+ * </pre>
+ */
+public final class GlBakedAtlas implements Disposable {
+
+    static final int MAGIC = 'S' | 'J' << 8 | 'G' << 16 | 'A' << 24;
+    static final int VERSION = 1;
+    static final int PAGE_ALIGNMENT = 16;
+
+    /**
+     * The largest page size an atlas may be baked with. Larger pages exceed the
+     * texture size limit of most GPUs, and from 23171 on a page's pixels no
+     * longer fit in a single buffer.
+     */
+    public static final int MAX_PAGE_SIZE = 16384;
+
+    private final List<GlTexture> pages;
+    private final Map<String, TextureRegion> regions;
+
+    private GlBakedAtlas(List<GlTexture> pages, Map<String, TextureRegion> regions) {
+        this.pages = pages;
+        this.regions = regions;
+    }
+
+    /**
+     * Loads a baked atlas. Must be called on the GL thread.
+     *
+     * @param file the baked atlas
+     * @return the loaded atlas
+     * @throws SJGFException if the file cannot be read or is not a baked atlas
+     */
+    public static GlBakedAtlas load(File file) {
+        Args.notNull(file, "file");
+
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new SJGFException("Failed to read " + file + ": " + e.getMessage());
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buffer.remaining() < 28 || buffer.getInt() != MAGIC)
+            throw new SJGFException(file + " is not a baked atlas");
+        if (buffer.getInt() != VERSION)
+            throw new SJGFException(file + " was baked with an unsupported version");
+
+        int pageSize = buffer.getInt();
+        int pageCount = buffer.getInt();
+        int regionCount = buffer.getInt();
+        long pageOffset = buffer.getLong();
+
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE || pageCount < 0 || regionCount < 0
+                || pageOffset < buffer.position() || pageOffset > buffer.capacity()
+                || (long) regionCount * (2 + 5 * Integer.BYTES) > pageOffset - buffer.position())
+            throw new SJGFException(file + " has a corrupt header");
+
+        long pageBytes = (long) pageSize * pageSize * 4;
+        if (pageOffset + pageBytes * pageCount > buffer.capacity())
+            throw new SJGFException(file + " is truncated");
+
+        // The index is read in full before anything is uploaded, so that a corrupt one leaks no textures
+        String[] names = new String[regionCount];
+        Set<String> seen = new HashSet<>(regionCount * 2);
+        int[] bounds = new int[regionCount * 5];
+        byte[] name = new byte[256];
+        for (int i = 0; i < regionCount; i++) {
+            if (buffer.position() + 2 > pageOffset)
+                throw new SJGFException(file + " has a corrupt index");
+            int length = buffer.getShort() & 0xFFFF;
+            if (buffer.position() + length + 5 * Integer.BYTES > pageOffset)
+                throw new SJGFException(file + " has a corrupt index");
+
+            if (length > name.length)
+                name = new byte[length];
+            buffer.get(name, 0, length);
+            names[i] = new String(name, 0, length, StandardCharsets.UTF_8);
+            if (!seen.add(names[i]))
+                throw new SJGFException(file + " has two regions named " + names[i]);
+
+            int page = buffer.getInt();
+            int x = buffer.getInt();
+            int y = buffer.getInt();
+            int width = buffer.getInt();
+            int height = buffer.getInt();
+            if (page < 0 || page >= pageCount || x < 0 || y < 0 || width < 0 || height < 0
+                    || (long) x + width > pageSize || (long) y + height > pageSize)
+                throw new SJGFException(file + " has a corrupt region: " + names[i]);
+
+            bounds[i * 5] = page;
+            bounds[i * 5 + 1] = x;
+            bounds[i * 5 + 2] = y;
+            bounds[i * 5 + 3] = width;
+            bounds[i * 5 + 4] = height;
+        }
+
+        List<GlTexture> pages = new ArrayList<>(pageCount);
+        for (int i = 0; i < pageCount; i++) {
+            ByteBuffer page = buffer.duplicate();
+            page.position((int) (pageOffset + pageBytes * i));
+            page.limit((int) (pageOffset + pageBytes * (i + 1)));
+            pages.add(new GlTexture(pageSize, pageSize, true, page));
+        }
+
+        Map<String, TextureRegion> regions = new HashMap<>(regionCount * 2);
+        for (int i = 0; i < regionCount; i++) {
+            int j = i * 5;
+            regions.put(names[i], new TextureRegion(pages.get(bounds[j]),
+                    bounds[j + 1], bounds[j + 2], bounds[j + 3], bounds[j + 4]));
+        }
+
+        return new GlBakedAtlas(Collections.unmodifiableList(pages), Collections.unmodifiableMap(regions));
+    }
+
+    /**
+     * Returns the region baked from the image with the provided name, which is its
+     * path relative to the baked directory, without extension and with '/' separators.
+     *
+     * @param name the name of the image
+     * @return the image's region, or <code>null</code> if there is none
+     */
+    public TextureRegion getRegion(String name) {
+        return regions.get(name);
+    }
+
+    /**
+     * Returns every region in this atlas by name.
+     *
+     * @return an unmodifiable map of the regions in this atlas
+     */
+    public Map<String, TextureRegion> getRegions() {
+        return regions;
+    }
+
+    /**
+     * Returns the textures that make up this atlas.
+     *
+     * @return an unmodifiable list of this atlas's pages
+     */
+    public List<GlTexture> getPages() {
+        return pages;
+    }
+
+    @Override
+    public void dispose() {
+        pages.forEach(GlTexture::dispose);
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.opengl.draw;
+
+import org.barronpm.sjgf.Disposable;
+import org.barronpm.sjgf.draw.Camera;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.opengl.GL15.GL_ARRAY_BUFFER;
+import static org.lwjgl.opengl.GL15.glBindBuffer;
+import static org.lwjgl.opengl.GL20.glUseProgram;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.system.MemoryUtil.memAddress;
+import static org.lwjgl.system.MemoryUtil.memCopy;
+
+/**
+ * Base class of the batches, which stage primitives in off-heap memory and
+ * stream them to the GPU when they are flushed.
+ *
+ * Vertices are queued in world space and projected on the GPU by the
+ * camera the batch was given, whose matrix is uploaded once per flush.
+ * If the camera changes while vertices are queued, they are flushed before
+ * more are added, so that each is drawn with the projection it was queued under.
+ *
+ * A batch starts with room for a fixed number of primitives. When a frame
+ * queues more primitives than fit, the batch grows at the end of that frame
+ * to the next power of two above the frame's count, up to a ceiling derived
+ * from the maximum memory it may use.
+ */
+abstract class GlBatch implements Disposable {
+
+    private static final int STREAM_BUFFER_SIZE = 1 << 20;
+
+    final GlShaderProgram program;
+    final int vao;
+    ByteBuffer vertices;
+    int count = 0;
+
+    private final GlStreamBuffer buffer;
+    private final int projectionLocation;
+    private final int primitiveBytes;
+    private final int maxCapacity;
+    private int capacity;
+    private int frameCount = 0;
+    private Camera camera;
+    private long cameraModifications;
+
+    GlBatch(GlShaderProgram program, Camera camera, int primitiveBytes, int capacity, long maxBytes) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Batch capacity must be positive");
+
+        this.program = program;
+        this.camera = camera;
+        this.cameraModifications = camera.getModificationCount();
+        this.projectionLocation = program.getUniformLocation("projection");
+        this.primitiveBytes = primitiveBytes;
+        this.capacity = capacity;
+        this.maxCapacity = (int) Math.max(capacity, Math.min(maxBytes / primitiveBytes, Integer.MAX_VALUE / primitiveBytes));
+        this.vertices = MemoryUtil.memAlloc(capacity * primitiveBytes);
+
+        vao = glGenVertexArrays();
+        buffer = new GlStreamBuffer(Math.max(STREAM_BUFFER_SIZE, capacity * primitiveBytes));
+    }
+
+    /**
+     * Sets the camera that projects the vertices queued after this call,
+     * flushing the vertices queued before it.
+     */
+    void setCamera(Camera camera) {
+        flush();
+        this.camera = camera;
+        this.cameraModifications = camera.getModificationCount();
+    }
+
+    /**
+     * Flushes the queued primitives if the camera has changed since they were
+     * queued. Called before a primitive is added.
+     */
+    void checkCamera() {
+        long modifications = camera.getModificationCount();
+        if (modifications != cameraModifications) {
+            flush();
+            cameraModifications = modifications;
+        }
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the byte offset of the next primitive in {@link #vertices}.
+     */
+    int position() {
+        return count * primitiveBytes;
+    }
+
+    /**
+     * Marks the primitive written at {@link #position()} as queued,
+     * flushing if the batch is full.
+     */
+    void next() {
+        count++;
+        frameCount++;
+        if (count == capacity)
+            flush();
+    }
+
+    /**
+     * Queues primitives already written in this batch's vertex format, flushing
+     * as the batch fills.
+     *
+     * @param primitives the primitives to copy
+     * @param first the index of the first primitive to copy
+     * @param primitiveCount the number of primitives to copy
+     */
+    void addAll(ByteBuffer primitives, int first, int primitiveCount) {
+        long source = memAddress(primitives) + (long) first * primitiveBytes;
+        while (primitiveCount > 0) {
+            int copied = Math.min(primitiveCount, capacity - count);
+            memCopy(source, memAddress(vertices) + position(), (long) copied * primitiveBytes);
+
+            source += (long) copied * primitiveBytes;
+            primitiveCount -= copied;
+            count += copied;
+            frameCount += copied;
+            if (count == capacity)
+                flush();
+        }
+    }
+
+    void flush() {
+        if (count == 0)
+            return;
+
+        int bytes = count * primitiveBytes;
+
+        long address = buffer.map(bytes);
+        memCopy(memAddress(vertices), address, bytes);
+        int offset = buffer.unmap();
+
+        glUseProgram(program.getHandle());
+        program.setUniform(projectionLocation, camera.getProjection());
+        glBindVertexArray(vao);
+        pointAttributes(offset);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+
+        draw(count);
+
+        glBindVertexArray(0);
+        count = 0;
+    }
+
+    /**
+     * Sets the attribute pointers of {@link #vao} against the bound stream buffer.
+     */
+    abstract void pointAttributes(int offset);
+
+    /**
+     * Issues the draw calls for the provided number of primitives.
+     */
+    abstract void draw(int count);
+
+    /**
+     * Grows the batch if the frame that just ended did not fit in it.
+     */
+    void endFrame() {
+        if (frameCount > capacity && capacity < maxCapacity)
+            setCapacity((int) Math.min(Integer.highestOneBit(frameCount - 1) * 2L, maxCapacity));
+
+        frameCount = 0;
+    }
+
+    void setCapacity(int capacity) {
+        flush();
+        vertices = MemoryUtil.memRealloc(vertices, capacity * primitiveBytes);
+        this.capacity = capacity;
+    }
+
+    @Override
+    public void dispose() {
+        buffer.dispose();
+        glDeleteVertexArrays(vao);
+        MemoryUtil.memFree(vertices);
+    }
+}
@@ -0,0 +1,382 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.opengl.draw;
+
+import org.barronpm.sjgf.draw.Camera;
+import org.barronpm.sjgf.draw.Color;
+import org.barronpm.sjgf.draw.Graphics;
+import org.barronpm.sjgf.draw.Texture;
+import org.barronpm.sjgf.util.Args;
+
+import java.awt.Font;
+import java.util.Arrays;
+
+/**
+ * A {@link Graphics} that records draw calls instead of issuing them, so that
+ * they can be made from threads other than the one owning the GL context.
+ *
+ * Shapes are tessellated as they are recorded, leaving only the copy into
+ * the batches for the GL thread. Recording reuses the buffer's storage from
+ * frame to frame, so once it has grown to fit a frame nothing is allocated.
+ * Text is the exception: its glyphs are laid out when the buffer is submitted,
+ * since fonts are created on the GL thread.
+ *
+ * A command buffer is not thread safe; each recording thread gets its own
+ * from {@link GlCommandQueue#getBuffer()}.
+ */
+public final class GlCommandBuffer implements Graphics {
+
+    /**
+     * The largest layer that can be drawn to.
+     */
+    public static final int MAX_LAYER = 0x7FFF;
+
+    private static final int DEFAULT_SEGMENTS = 50;
+
+    private static final int LINES = 0;
+    private static final int TRIANGLES = 1;
+    private static final int QUADS = 2;
+    private static final int TEXTURE = 3;
+    private static final int STRING = 4;
+
+    // kind, first float, primitive count, packed color
+    private static final int COMMAND_STRIDE = 4;
+    // camera, texture or string, font, color
+    private static final int REF_STRIDE = 4;
+
+    private final int index;
+
+    private Color color = Color.BLACK;
+    private int packedColor = VertexFormat.pack(color);
+    private Font font = new Font(Font.MONOSPACED, Font.PLAIN, 16);
+    private Camera camera;
+    private int layer;
+
+    private int count;
+    private int[] commands = new int[64 * COMMAND_STRIDE];
+    private Object[] refs = new Object[64 * REF_STRIDE];
+
+    private int floatCount;
+    private float[] floats = new float[1024];
+
+    GlCommandBuffer(int index) {
+        this.index = index;
+    }
+
+    public int getLayer() {
+        return layer;
+    }
+
+    /**
+     * Sets the layer that following draw calls are recorded to. Layers are
+     * drawn in increasing order; within a layer, calls from one buffer are
+     * drawn in the order they were recorded.
+     *
+     * @param layer the layer, from 0 to {@link #MAX_LAYER}
+     * @throws IllegalArgumentException if layer is out of range
+     */
+    public void setLayer(int layer) {
+        if (layer < 0 || layer > MAX_LAYER)
+            throw new IllegalArgumentException("Layer must be between 0 and " + MAX_LAYER);
+        this.layer = layer;
+    }
+
+    @Override
+    public Color getColor() {
+        return color;
+    }
+
+    @Override
+    public void setColor(Color color) {
+        Args.notNull(color, "color");
+        this.color = color;
+        this.packedColor = VertexFormat.pack(color);
+    }
+
+    @Override
+    public Font getFont() {
+        return font;
+    }
+
+    @Override
+    public void setFont(Font font) {
+        Args.notNull(font, "font");
+        this.font = font;
+    }
+
+    @Override
+    public Camera getCamera() {
+        return camera;
+    }
+
+    /**
+     * Sets the camera used by following draw calls, or <code>null</code> for the
+     * default camera of the graphics the buffer is submitted to.
+     *
+     * @param camera the camera to draw with
+     */
+    @Override
+    public void setCamera(Camera camera) {
+        this.camera = camera;
+    }
+
+    @Override
+    public void drawArc(float x, float y, float width, float height, float start, float end) {
+        drawArc(x, y, width, height, start, end, DEFAULT_SEGMENTS);
+    }
+
+    @Override
+    public void drawArc(float x, float y, float width, float height, float start, float end, int segments) {
+        double inc = (Math.PI * 2) / segments;
+        float cx = x + (width / 2);
+        float cy = y + (height / 2);
+
+        begin(LINES, packedColor);
+        for (double theta = start; theta < end; theta += inc) {
+            float x1 = (float) (width * Math.cos(theta));
+            float x2 = (float) (width * Math.cos(theta + inc));
+            float y1 = (float) (height * Math.sin(theta));
+            float y2 = (float) (height * Math.sin(theta + inc));
+
+            line(cx + x1, cy + y1, cx + x2, cy + y2);
+        }
+    }
+
+    @Override
+    public void drawEllipse(float x, float y, float width, float height) {
+        drawEllipse(x, y, width, height, DEFAULT_SEGMENTS);
+    }
+
+    @Override
+    public void drawEllipse(float x, float y, float width, float height, int segments) {
+        drawArc(x - width / 2, y - height / 2, width, height, 0, (float) (Math.PI * 2), segments);
+    }
+
+    @Override
+    public void drawLine(float x1, float y1, float x2, float y2) {
+        begin(LINES, packedColor);
+        line(x1, y1, x2, y2);
+    }
+
+    @Override
+    public void drawString(String string, float x, float y) {
+        Args.notNull(string, "string");
+        int command = begin(STRING, packedColor);
+        refs[command * REF_STRIDE + 1] = string;
+        refs[command * REF_STRIDE + 2] = font;
+        refs[command * REF_STRIDE + 3] = color;
+
+        float[] floats = reserve(2);
+        floats[floatCount++] = x;
+        floats[floatCount++] = y;
+    }
+
+    @Override
+    public void drawRect(float x, float y, float width, float height) {
+        begin(LINES, packedColor);
+        line(x, y, x, y + height);
+        line(x, y + height, x + width, y + height);
+        line(x + width, y + height, x + width, y);
+        line(x + width, y, x, y);
+    }
+
+    @Override
+    public void drawTexture(Texture texture, float x, float y) {
+        drawTexture(texture, Color.WHITE, x, y, texture.getWidth(), texture.getHeight());
+    }
+
+    @Override
+    public void drawTexture(Texture texture, Color color, float x, float y) {
+        drawTexture(texture, color, x, y, texture.getWidth(), texture.getHeight());
+    }
+
+    @Override
+    public void drawTexture(Texture texture, float x, float y, float width, float height) {
+        drawTexture(texture, Color.WHITE, x, y, width, height);
+    }
+
+    @Override
+    public void drawTexture(Texture texture, Color color, float x, float y, float width, float height) {
+        Args.notNull(texture, "texture");
+        int command = begin(TEXTURE, color == this.color ? packedColor : VertexFormat.pack(color));
+        refs[command * REF_STRIDE + 1] = texture;
+
+        float[] floats = reserve(8);
+        floats[floatCount++] = 0;
+        floats[floatCount++] = 0;
+        floats[floatCount++] = 1;
+        floats[floatCount++] = 1;
+        floats[floatCount++] = x;
+        floats[floatCount++] = y;
+        floats[floatCount++] = width;
+        floats[floatCount++] = height;
+        commands[command * COMMAND_STRIDE + 2] = 1;
+    }
+
+    @Override
+    public void fillEllipse(float x, float y, float width, float height) {
+        fillEllipse(x, y, width, height, DEFAULT_SEGMENTS);
+    }
+
+    @Override
+    public void fillEllipse(float x, float y, float width, float height, int segments) {
+        double inc = (Math.PI * 2) / segments;
+
+        int command = begin(TRIANGLES, packedColor);
+        for (double theta = 0; theta < Math.PI * 2; theta += inc) {
+            float x1 = (float) (width * Math.cos(theta));
+            float x2 = (float) (width * Math.cos(theta + inc));
+            float y1 = (float) (height * Math.sin(theta));
+            float y2 = (float) (height * Math.sin(theta + inc));
+
+            float[] floats = reserve(6);
+            floats[floatCount++] = x;
+            floats[floatCount++] = y;
+            floats[floatCount++] = x + x1;
+            floats[floatCount++] = y + y1;
+            floats[floatCount++] = x + x2;
+            floats[floatCount++] = y + y2;
+            commands[command * COMMAND_STRIDE + 2]++;
+        }
+    }
+
+    @Override
+    public void fillRect(float x, float y, float width, float height) {
+        int command = begin(QUADS, packedColor);
+
+        float[] floats = reserve(8);
+        floats[floatCount++] = x;
+        floats[floatCount++] = y;
+        floats[floatCount++] = x;
+        floats[floatCount++] = y + height;
+        floats[floatCount++] = x + width;
+        floats[floatCount++] = y + height;
+        floats[floatCount++] = x + width;
+        floats[floatCount++] = y;
+        commands[command * COMMAND_STRIDE + 2] = 1;
+    }
+
+    /**
+     * Writes a sort key for each recorded command into <code>keys</code>,
+     * starting at <code>offset</code>.
+     *
+     * @return the number of keys written
+     */
+    int writeKeys(long[] keys, int offset) {
+        long buffer = (long) index << 32;
+        for (int command = 0; command < count; command++) {
+            long layer = commands[command * COMMAND_STRIDE] >>> 16;
+            keys[offset + command] = layer << 48 | buffer | command;
+        }
+        return count;
+    }
+
+    int getCommandCount() {
+        return count;
+    }
+
+    /**
+     * Draws a recorded command with the provided graphics.
+     */
+    void submit(GlGraphics graphics, int command) {
+        int base = command * COMMAND_STRIDE;
+        int kind = commands[base] & 0xFFFF;
+        int offset = commands[base + 1];
+        int primitives = commands[base + 2];
+        int color = commands[base + 3];
+
+        Object[] refs = this.refs;
+        int refBase = command * REF_STRIDE;
+        graphics.setCamera((Camera) refs[refBase]);
+
+        float[] f = floats;
+        float z = graphics.getZ();
+        switch (kind) {
+            case LINES:
+                GlShapeBatch lines = graphics.getLineBatch();
+                for (int i = 0; i < primitives; i++, offset += 4)
+                    lines.add(color, z, f[offset], f[offset + 1], f[offset + 2], f[offset + 3]);
+                break;
+            case TRIANGLES:
+                GlShapeBatch triangles = graphics.getTriangleBatch();
+                for (int i = 0; i < primitives; i++, offset += 6)
+                    triangles.add(color, z, f[offset], f[offset + 1], f[offset + 2], f[offset + 3],
+                            f[offset + 4], f[offset + 5]);
+                break;
+            case QUADS:
+                GlShapeBatch quads = graphics.getQuadBatch();
+                for (int i = 0; i < primitives; i++, offset += 8)
+                    quads.add(color, z, f[offset], f[offset + 1], f[offset + 2], f[offset + 3],
+                            f[offset + 4], f[offset + 5], f[offset + 6], f[offset + 7]);
+                break;
+            case TEXTURE:
+                graphics.getTextureBatch().addRegion((Texture) refs[refBase + 1], color,
+                        f[offset], f[offset + 1], f[offset + 2], f[offset + 3],
+                        f[offset + 4], f[offset + 5], z, f[offset + 6], f[offset + 7]);
+                break;
+            case STRING:
+                Color previousColor = graphics.getColor();
+                Font previousFont = graphics.getFont();
+                graphics.setColor((Color) refs[refBase + 3]);
+                graphics.setFont((Font) refs[refBase + 2]);
+                graphics.drawString((String) refs[refBase + 1], f[offset], f[offset + 1]);
+                graphics.setColor(previousColor);
+                graphics.setFont(previousFont);
+                return;
+        }
+        graphics.incZ();
+    }
+
+    /**
+     * Forgets all recorded commands, keeping the storage for the next frame.
+     */
+    void reset() {
+        Arrays.fill(refs, 0, count * REF_STRIDE, null);
+        count = 0;
+        floatCount = 0;
+    }
+
+    private int begin(int kind, int color) {
+        if ((count + 1) * COMMAND_STRIDE > commands.length) {
+            commands = Arrays.copyOf(commands, commands.length * 2);
+            refs = Arrays.copyOf(refs, refs.length * 2);
+        }
+
+        int base = count * COMMAND_STRIDE;
+        commands[base] = layer << 16 | kind;
+        commands[base + 1] = floatCount;
+        commands[base + 2] = 0;
+        commands[base + 3] = color;
+        refs[count * REF_STRIDE] = camera;
+        return count++;
+    }
+
+    private void line(float x1, float y1, float x2, float y2) {
+        float[] floats = reserve(4);
+        floats[floatCount++] = x1;
+        floats[floatCount++] = y1;
+        floats[floatCount++] = x2;
+        floats[floatCount++] = y2;
+        commands[(count - 1) * COMMAND_STRIDE + 2]++;
+    }
+
+    private float[] reserve(int size) {
+        if (floatCount + size > floats.length)
+            floats = Arrays.copyOf(floats, Math.max(floats.length * 2, floatCount + size));
+        return floats;
+    }
+}
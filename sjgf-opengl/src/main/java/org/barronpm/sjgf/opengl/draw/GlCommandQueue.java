@@ -0,0 +1,102 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.opengl.draw;
+
+import org.barronpm.sjgf.draw.Camera;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Collects {@link GlCommandBuffer GlCommandBuffers} recorded on many threads
+ * and submits them together on the GL thread.
+ *
+ * Each thread that calls {@link #getBuffer()} is given a buffer of its own,
+ * which it keeps for as long as the queue exists, so a thread pool that records
+ * every frame settles into reusing the same buffers. When recording is done,
+ * {@link #submit(GlGraphics)} merges the commands of every buffer, sorts them by
+ * layer and draws them in order. Commands on the same layer from different
+ * buffers are drawn buffer by buffer; use layers where their order matters.
+ *
+ * No thread may record while the queue is being submitted.
+ */
+public final class GlCommandQueue {
+
+    private final ThreadLocal<GlCommandBuffer> buffer = ThreadLocal.withInitial(this::createBuffer);
+    private final List<GlCommandBuffer> buffers = new ArrayList<>();
+
+    private GlCommandBuffer[] submitted = new GlCommandBuffer[0];
+    private long[] keys = new long[1024];
+
+    /**
+     * Returns the command buffer of the calling thread.
+     *
+     * @return the calling thread's command buffer
+     */
+    public GlCommandBuffer getBuffer() {
+        return buffer.get();
+    }
+
+    private synchronized GlCommandBuffer createBuffer() {
+        if (buffers.size() > 0xFFFF)
+            throw new IllegalStateException("Too many threads recording commands");
+
+        GlCommandBuffer buffer = new GlCommandBuffer(buffers.size());
+        buffers.add(buffer);
+        return buffer;
+    }
+
+    /**
+     * Draws every recorded command with the provided graphics, then clears all buffers.
+     * Must be called on the GL thread.
+     *
+     * @param graphics the graphics to draw with
+     */
+    public void submit(GlGraphics graphics) {
+        GlCommandBuffer[] buffers;
+        synchronized (this) {
+            if (submitted.length != this.buffers.size())
+                submitted = this.buffers.toArray(submitted);
+            buffers = submitted;
+        }
+
+        int total = 0;
+        for (GlCommandBuffer buffer : buffers)
+            total += buffer.getCommandCount();
+
+        if (total > keys.length)
+            keys = new long[Integer.highestOneBit(total) << 1];
+
+        int count = 0;
+        for (GlCommandBuffer buffer : buffers)
+            count += buffer.writeKeys(keys, count);
+
+        Arrays.sort(keys, 0, count);
+
+        Camera camera = graphics.getCamera();
+        for (int i = 0; i < count; i++) {
+            long key = keys[i];
+            buffers[(int) (key >>> 32) & 0xFFFF].submit(graphics, (int) key);
+        }
+
+        for (GlCommandBuffer buffer : buffers)
+            buffer.reset();
+
+        graphics.setCamera(camera);
+    }
+}
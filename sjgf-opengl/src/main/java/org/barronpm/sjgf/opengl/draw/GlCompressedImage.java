@@ -0,0 +1,462 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.opengl.draw;
+
+import org.barronpm.sjgf.exceptions.SJGFException;
+import org.barronpm.sjgf.util.Args;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import static org.lwjgl.opengl.EXTTextureCompressionS3TC.*;
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL13.glCompressedTexImage2D;
+import static org.lwjgl.opengl.GL42.GL_COMPRESSED_RGBA_BPTC_UNORM;
+import static org.lwjgl.opengl.GL43.*;
+import static org.lwjgl.system.MemoryUtil.memAlloc;
+import static org.lwjgl.system.MemoryUtil.memFree;
+
+/**
+ * A block compressed image read from a KTX or DDS container, with all of its mip levels.
+ *
+ * S3TC (DXT1, DXT3 and DXT5), ETC2 and BPTC images are supported. The levels are
+ * uploaded as they are when the driver supports the format; otherwise S3TC
+ * images are decompressed on the CPU and uploaded as RGBA, and other formats
+ * fail to upload.
+ *
+ * Textures are stored bottom row first, so DDS images, and KTX images whose
+ * orientation is marked as top down, are flipped while parsing. Only S3TC
+ * images can be flipped, and only if the height of each level is at most 4 or
+ * a multiple of 4, so DDS files can only hold S3TC images.
+ */
+public final class GlCompressedImage {
+
+    private static final byte[] KTX_IDENTIFIER = {
+            (byte) 0xAB, 'K', 'T', 'X', ' ', '1', '1', (byte) 0xBB, '\r', '\n', 0x1A, '\n'
+    };
+    private static final int KTX_ENDIANNESS = 0x04030201;
+    private static final int KTX_HEADER_SIZE = 64;
+
+    private static final int DDS_MAGIC = 0x20534444;
+    private static final int DDS_HEADER_SIZE = 128;
+    private static final int DDS_DX10_HEADER_SIZE = 20;
+    private static final int DDSD_MIPMAPCOUNT = 0x20000;
+    private static final int DDPF_FOURCC = 0x4;
+    private static final int FOURCC_DXT1 = 0x31545844;
+    private static final int FOURCC_DXT3 = 0x33545844;
+    private static final int FOURCC_DXT5 = 0x35545844;
+    private static final int FOURCC_DX10 = 0x30315844;
+    private static final int DXGI_FORMAT_BC1_UNORM = 71;
+    private static final int DXGI_FORMAT_BC2_UNORM = 74;
+    private static final int DXGI_FORMAT_BC3_UNORM = 77;
+    private static final int DXGI_FORMAT_BC7_UNORM = 98;
+    private static final int DXGI_FORMAT_BC7_UNORM_SRGB = 99;
+
+    private final int format;
+    private final int width;
+    private final int height;
+    private final int[] levelOffsets;
+    private final int[] levelSizes;
+    private ByteBuffer data;
+
+    private GlCompressedImage(int format, int width, int height, int[] levelOffsets, int[] levelSizes,
+                              ByteBuffer data) {
+        this.format = format;
+        this.width = width;
+        this.height = height;
+        this.levelOffsets = levelOffsets;
+        this.levelSizes = levelSizes;
+        this.data = data;
+    }
+
+    /**
+     * Returns whether the given contents start with a KTX or DDS header.
+     *
+     * @param contents the contents of a file
+     * @return true if the contents can be parsed by {@link #parse(ByteBuffer)}
+     */
+    public static boolean isContainer(ByteBuffer contents) {
+        Args.notNull(contents, "contents");
+
+        int start = contents.position();
+        if (contents.remaining() >= KTX_IDENTIFIER.length) {
+            boolean ktx = true;
+            for (int i = 0; i < KTX_IDENTIFIER.length && ktx; i++)
+                ktx = contents.get(start + i) == KTX_IDENTIFIER[i];
+            if (ktx)
+                return true;
+        }
+
+        return contents.remaining() >= 4
+                && contents.duplicate().order(ByteOrder.LITTLE_ENDIAN).getInt(start) == DDS_MAGIC;
+    }
+
+    /**
+     * Parses a KTX or DDS container. The image data is copied, so the contents
+     * may be released once this returns. The returned image must be freed.
+     *
+     * @param contents the contents of the file
+     * @return the parsed image
+     * @throws SJGFException if the container is malformed or its format is not supported
+     */
+    public static GlCompressedImage parse(ByteBuffer contents) {
+        Args.notNull(contents, "contents");
+        if (!isContainer(contents))
+            throw new SJGFException("Not a KTX or DDS image");
+
+        ByteBuffer source = contents.slice();
+        return source.get(0) == KTX_IDENTIFIER[0] ? parseKtx(source) : parseDds(source);
+    }
+
+    private static GlCompressedImage parseKtx(ByteBuffer source) {
+        require(source, KTX_HEADER_SIZE);
+        source.order(ByteOrder.LITTLE_ENDIAN);
+        if (source.getInt(12) != KTX_ENDIANNESS)
+            source.order(ByteOrder.BIG_ENDIAN);
+        if (source.getInt(12) != KTX_ENDIANNESS)
+            throw new SJGFException("Malformed KTX header");
+
+        int glType = source.getInt(16);
+        int format = source.getInt(28);
+        int width = source.getInt(36);
+        int height = source.getInt(40);
+        int depth = source.getInt(44);
+        int arrayElements = source.getInt(48);
+        int faces = source.getInt(52);
+        int levels = Math.max(1, source.getInt(56));
+        int keyValueBytes = source.getInt(60);
+
+        if (glType != 0)
+            throw new SJGFException("KTX image is not compressed");
+        if (depth != 0 || arrayElements != 0 || faces != 1)
+            throw new SJGFException("Only 2D KTX images are supported");
+        checkFormat(format, width, height, levels);
+
+        if (keyValueBytes < 0)
+            throw new SJGFException("Malformed KTX header");
+        require(source, KTX_HEADER_SIZE + (long) keyValueBytes);
+        boolean flip = isTopDown(source, KTX_HEADER_SIZE, keyValueBytes);
+
+        int[] offsets = new int[levels];
+        int[] sizes = new int[levels];
+        long offset = KTX_HEADER_SIZE + keyValueBytes;
+        long total = 0;
+        for (int level = 0; level < levels; level++) {
+            require(source, offset + 4);
+            int size = source.getInt((int) offset);
+            if (size != levelSize(format, levelDimension(width, level), levelDimension(height, level)))
+                throw new SJGFException("Malformed KTX mip level " + level);
+
+            offsets[level] = (int) offset + 4;
+            sizes[level] = size;
+            total += size;
+            offset += 4 + ((size + 3) & ~3);
+        }
+        require(source, (long) offsets[levels - 1] + sizes[levels - 1]);
+
+        return copy(source, format, width, height, offsets, sizes, total, flip);
+    }
+
+    private static GlCompressedImage parseDds(ByteBuffer source) {
+        require(source, DDS_HEADER_SIZE);
+        source.order(ByteOrder.LITTLE_ENDIAN);
+
+        int flags = source.getInt(8);
+        int height = source.getInt(12);
+        int width = source.getInt(16);
+        int levels = (flags & DDSD_MIPMAPCOUNT) != 0 ? Math.max(1, source.getInt(28)) : 1;
+        int pixelFlags = source.getInt(80);
+        int fourCC = source.getInt(84);
+
+        if ((pixelFlags & DDPF_FOURCC) == 0)
+            throw new SJGFException("Only block compressed DDS images are supported");
+
+        long offset = DDS_HEADER_SIZE;
+        int format;
+        switch (fourCC) {
+            case FOURCC_DXT1:
+                format = GL_COMPRESSED_RGBA_S3TC_DXT1_EXT;
+                break;
+            case FOURCC_DXT3:
+                format = GL_COMPRESSED_RGBA_S3TC_DXT3_EXT;
+                break;
+            case FOURCC_DXT5:
+                format = GL_COMPRESSED_RGBA_S3TC_DXT5_EXT;
+                break;
+            case FOURCC_DX10:
+                require(source, DDS_HEADER_SIZE + DDS_DX10_HEADER_SIZE);
+                format = dxgiFormat(source.getInt(DDS_HEADER_SIZE));
+                offset += DDS_DX10_HEADER_SIZE;
+                break;
+            default:
+                throw new SJGFException("Unsupported DDS format: 0x" + Integer.toHexString(fourCC));
+        }
+        checkFormat(format, width, height, levels);
+
+        int[] offsets = new int[levels];
+        int[] sizes = new int[levels];
+        long total = 0;
+        for (int level = 0; level < levels; level++) {
+            int size = levelSize(format, levelDimension(width, level), levelDimension(height, level));
+            require(source, offset + size);
+            offsets[level] = (int) offset;
+            sizes[level] = size;
+            total += size;
+            offset += size;
+        }
+
+        return copy(source, format, width, height, offsets, sizes, total, true);
+    }
+
+    private static GlCompressedImage copy(ByteBuffer source, int format, int width, int height,
+                                          int[] offsets, int[] sizes, long total, boolean flip) {
+        int s3tc = s3tcFormat(format);
+        if (flip && s3tc == 0)
+            throw new SJGFException("Only S3TC images can be stored top down; store the image bottom up in a KTX file");
+
+        if (total > Integer.MAX_VALUE)
+            throw new SJGFException("Image too large: " + width + "x" + height);
+
+        ByteBuffer data = memAlloc((int) total);
+        try {
+            int offset = 0;
+            for (int level = 0; level < offsets.length; level++) {
+                ByteBuffer levelData = source.duplicate();
+                levelData.limit(offsets[level] + sizes[level]).position(offsets[level]);
+                data.put(levelData);
+
+                if (flip) {
+                    ByteBuffer flipped = data.duplicate();
+                    flipped.position(offset);
+                    S3tcDecoder.flip(s3tc, flipped,
+                            levelDimension(width, level), levelDimension(height, level));
+                }
+
+                offsets[level] = offset;
+                offset += sizes[level];
+            }
+            data.flip();
+        } catch (IllegalArgumentException e) {
+            memFree(data);
+            throw new SJGFException("Failed to flip image: " + e.getMessage(), e);
+        }
+
+        return new GlCompressedImage(format, width, height, offsets, sizes, data);
+    }
+
+    public int getFormat() {
+        return format;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getLevels() {
+        return levelSizes.length;
+    }
+
+    /**
+     * Returns whether the current context can sample this image's format without decompressing it.
+     *
+     * @return true if the format is supported by the driver
+     */
+    public boolean isFormatSupported() {
+        GLCapabilities caps = GL.getCapabilities();
+        switch (format) {
+            case GL_COMPRESSED_RGBA_BPTC_UNORM:
+                return caps.OpenGL42 || caps.GL_ARB_texture_compression_bptc;
+            case GL_COMPRESSED_RGB8_ETC2:
+            case GL_COMPRESSED_RGBA8_ETC2_EAC:
+                return caps.OpenGL43 || caps.GL_ARB_ES3_compatibility;
+            default:
+                return caps.GL_EXT_texture_compression_s3tc;
+        }
+    }
+
+    /**
+     * Uploads this image to a new texture. Must be called on the GL thread.
+     *
+     * @return the texture
+     * @throws SJGFException if the format is not supported and can't be decompressed
+     */
+    public GlTexture upload() {
+        if (data == null)
+            throw new IllegalStateException("Image has been freed");
+
+        int levels = getLevels();
+        int s3tc = s3tcFormat(format);
+        GlTexture texture;
+
+        if (isFormatSupported()) {
+            long memorySize = 0;
+            for (int size : levelSizes)
+                memorySize += size;
+
+            texture = new GlTexture(width, height, memorySize);
+            texture.compressed = true;
+            for (int level = 0; level < levels; level++) {
+                glCompressedTexImage2D(GL_TEXTURE_2D, level, format,
+                        levelDimension(width, level), levelDimension(height, level), 0, level(level));
+            }
+        } else if (s3tc != 0) {
+            long memorySize = 0;
+            for (int level = 0; level < levels; level++)
+                memorySize += 4L * levelDimension(width, level) * levelDimension(height, level);
+
+            texture = new GlTexture(width, height, memorySize);
+            glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+
+            ByteBuffer pixels = memAlloc(width * height * 4);
+            try {
+                for (int level = 0; level < levels; level++) {
+                    int levelWidth = levelDimension(width, level);
+                    int levelHeight = levelDimension(height, level);
+                    S3tcDecoder.decode(s3tc, level(level), levelWidth, levelHeight, pixels);
+                    glTexImage2D(GL_TEXTURE_2D, level, GL_RGBA, levelWidth, levelHeight, 0,
+                            GL_RGBA, GL_UNSIGNED_BYTE, pixels);
+                }
+            } finally {
+                memFree(pixels);
+            }
+        } else {
+            throw new SJGFException("Compressed texture format 0x" + Integer.toHexString(format)
+                    + " is not supported by the driver");
+        }
+
+        texture.setLevels(levels);
+        return texture;
+    }
+
+    /**
+     * Releases the memory holding this image's data.
+     */
+    public void free() {
+        if (data != null) {
+            memFree(data);
+            data = null;
+        }
+    }
+
+    private ByteBuffer level(int level) {
+        ByteBuffer levelData = data.duplicate();
+        levelData.limit(levelOffsets[level] + levelSizes[level]).position(levelOffsets[level]);
+        return levelData.slice();
+    }
+
+    private static boolean isTopDown(ByteBuffer source, int offset, int length) {
+        int end = offset + length;
+        while (offset + 4 <= end) {
+            int size = source.getInt(offset);
+            int start = offset + 4;
+            if (size < 0 || start + size > end)
+                throw new SJGFException("Malformed KTX key/value data");
+
+            byte[] pair = new byte[size];
+            ByteBuffer pairData = source.duplicate();
+            pairData.position(start);
+            pairData.get(pair);
+
+            String text = new String(pair, StandardCharsets.UTF_8);
+            int separator = text.indexOf('\0');
+            if (separator >= 0 && text.substring(0, separator).equals("KTXorientation"))
+                return text.indexOf("T=d", separator) >= 0;
+
+            offset = start + ((size + 3) & ~3);
+        }
+        return false;
+    }
+
+    private static int dxgiFormat(int dxgiFormat) {
+        switch (dxgiFormat) {
+            case DXGI_FORMAT_BC1_UNORM:
+                return GL_COMPRESSED_RGBA_S3TC_DXT1_EXT;
+            case DXGI_FORMAT_BC2_UNORM:
+                return GL_COMPRESSED_RGBA_S3TC_DXT3_EXT;
+            case DXGI_FORMAT_BC3_UNORM:
+                return GL_COMPRESSED_RGBA_S3TC_DXT5_EXT;
+            case DXGI_FORMAT_BC7_UNORM:
+            case DXGI_FORMAT_BC7_UNORM_SRGB:
+                // DDS images are stored top down, and BC7 blocks can't be flipped without re-encoding
+                throw new SJGFException("BC7 DDS images are not supported; store the image bottom up in a KTX file");
+            default:
+                throw new SJGFException("Unsupported DXGI format: " + dxgiFormat);
+        }
+    }
+
+    private static void checkFormat(int format, int width, int height, int levels) {
+        if (blockBytes(format) == 0)
+            throw new SJGFException("Unsupported compressed texture format: 0x" + Integer.toHexString(format));
+        if (width <= 0 || height <= 0)
+            throw new SJGFException("Invalid image size: " + width + "x" + height);
+        if (levels > 32 - Integer.numberOfLeadingZeros(Math.max(width, height)))
+            throw new SJGFException("Too many mip levels: " + levels);
+    }
+
+    private static int s3tcFormat(int format) {
+        switch (format) {
+            case GL_COMPRESSED_RGB_S3TC_DXT1_EXT:
+            case GL_COMPRESSED_RGBA_S3TC_DXT1_EXT:
+                return S3tcDecoder.DXT1;
+            case GL_COMPRESSED_RGBA_S3TC_DXT3_EXT:
+                return S3tcDecoder.DXT3;
+            case GL_COMPRESSED_RGBA_S3TC_DXT5_EXT:
+                return S3tcDecoder.DXT5;
+            default:
+                return 0;
+        }
+    }
+
+    private static int blockBytes(int format) {
+        switch (format) {
+            case GL_COMPRESSED_RGB_S3TC_DXT1_EXT:
+            case GL_COMPRESSED_RGBA_S3TC_DXT1_EXT:
+            case GL_COMPRESSED_RGB8_ETC2:
+                return 8;
+            case GL_COMPRESSED_RGBA_S3TC_DXT3_EXT:
+            case GL_COMPRESSED_RGBA_S3TC_DXT5_EXT:
+            case GL_COMPRESSED_RGBA8_ETC2_EAC:
+            case GL_COMPRESSED_RGBA_BPTC_UNORM:
+                return 16;
+            default:
+                return 0;
+        }
+    }
+
+    private static int levelSize(int format, int width, int height) {
+        long size = (long) ((width + 3) / 4) * ((height + 3) / 4) * blockBytes(format);
+        if (size > Integer.MAX_VALUE)
+            throw new SJGFException("Image too large: " + width + "x" + height);
+        return (int) size;
+    }
+
+    private static int levelDimension(int size, int level) {
+        return Math.max(1, size >> level);
+    }
+
+    private static void require(ByteBuffer source, long size) {
+        if (size > source.limit())
+            throw new SJGFException("Truncated image data");
+    }
+}
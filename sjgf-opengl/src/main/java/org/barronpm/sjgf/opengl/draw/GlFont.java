@@ -16,122 +16,247 @@
 
 package org.barronpm.sjgf.opengl.draw;
 
-import org.barronpm.sjgf.draw.Texture;
-import org.lwjgl.system.MemoryUtil;
-
 import java.awt.*;
-import java.awt.geom.AffineTransform;
-import java.awt.image.AffineTransformOp;
-import java.awt.image.BufferedImage;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.system.MemoryUtil.memAlloc;
+import static org.lwjgl.system.MemoryUtil.memCalloc;
+import static org.lwjgl.system.MemoryUtil.memFree;
+
+/**
+ * A glyph cache for a font. Glyphs are rasterized the first time they are
+ * drawn and packed into atlas pages; once {@link #MAX_PAGES} pages are full,
+ * the page used least recently is cleared and its glyphs are rasterized again
+ * when next needed.
+ *
+ * Bitmap fonts hold the glyphs rasterized at the font's size. Distance field
+ * fonts are rasterized once per typeface at {@link #DISTANCE_FIELD_SIZE} and
+ * store each texel's distance to the glyph's edge, so the same glyphs draw
+ * sharp text at any size.
+ */
 class GlFont {
 
-    final Map<Character, Glyph> glyphs;
+    static final float DISTANCE_FIELD_SIZE = 48;
+    static final int DISTANCE_FIELD_SPREAD = 6;
+
+    static final int PAGE_SIZE = 1024;
+    static final int MAX_PAGES = 4;
+
+    private static final int BYTES_PER_PIXEL = 4;
+    // Gap between glyphs, so filtering doesn't sample neighbouring glyphs
+    private static final int GAP = 1;
 
     final int height;
-    final Texture atlas;
-
-    private final Font font;
-    private final Graphics2D graphics;
-    private final FontMetrics metrics;
-
-    GlFont(Font font) {
-        this.font = font;
-        BufferedImage image = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
-        graphics = image.createGraphics();
-        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        graphics.setFont(font);
-        metrics = graphics.getFontMetrics();
-
-        glyphs = new HashMap<>();
-
-        StringBuilder builder = new StringBuilder();
-        for (int i = 32; i < 256; i++) {
-            if (i == 127) continue;
-            builder.append((char) i);
-        }
+    final boolean distanceField;
+
+    private final GlyphRasterizer rasterizer;
+    private final Runnable flush;
+    private final int pageSize;
+
+    private final Map<Integer, Glyph> glyphs = new HashMap<>();
+    private final List<Page> pages = new ArrayList<>();
+    private long uses = 0;
+    private int evictions = 0;
 
-        height = metrics.getHeight();
-        atlas = createTexture(metrics.stringWidth(builder.toString()), height);
+    private ByteBuffer upload;
+
+    /**
+     * Creates a glyph cache for a font rasterized through Java 2D.
+     * <code>flush</code> is run before a page is cleared, so that glyphs
+     * already queued from it are drawn first.
+     */
+    GlFont(Font font, boolean distanceField, Runnable flush) {
+        this(new AwtGlyphRasterizer(distanceField ? typeface(font) : font,
+                distanceField ? DISTANCE_FIELD_SPREAD : 0), distanceField, flush);
     }
 
-    private Texture createTexture(int imageWidth, int imageHeight) {
-        BufferedImage image = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g = image.createGraphics();
+    /**
+     * Creates a glyph cache for a TrueType font at the given font's size.
+     */
+    GlFont(GlTrueTypeFont trueTypeFont, Font font, boolean distanceField, Runnable flush) {
+        this(new StbGlyphRasterizer(trueTypeFont, (distanceField ? typeface(font) : font).getSize2D()),
+                distanceField, flush);
+    }
 
-        int x = 0;
+    private GlFont(GlyphRasterizer rasterizer, boolean distanceField, Runnable flush) {
+        this.rasterizer = rasterizer;
+        this.distanceField = distanceField;
+        this.flush = flush;
 
-        for (int i = 32; i < 256; i++) {
-            if (i == 127) continue;
+        height = rasterizer.getLineHeight();
+        pageSize = Math.max(PAGE_SIZE, Integer.highestOneBit(rasterizer.getMaxGlyphWidth() + GAP - 1) << 1);
+    }
 
-            char c = (char) i;
-            BufferedImage charImage = createCharImage(c);
-            if (charImage == null) {
-                continue;
-            }
+    /**
+     * Returns the font that distance field atlases are created for, which is
+     * the same for every size of a typeface.
+     */
+    static Font typeface(Font font) {
+        return font.getSize2D() == DISTANCE_FIELD_SIZE ? font : font.deriveFont(DISTANCE_FIELD_SIZE);
+    }
+
+    /**
+     * Returns the glyph for a code point, rasterizing it if it isn't cached.
+     * Code points the font can't display are drawn as its missing glyph, and
+     * glyphs with nothing to draw, such as spaces, have no page.
+     */
+    Glyph getGlyph(int codePoint) {
+        uses++;
+
+        Glyph glyph = glyphs.get(codePoint);
+        if (glyph == null) {
+            glyph = rasterize(codePoint);
+            glyphs.put(codePoint, glyph);
+        }
+
+        if (glyph.page != null)
+            glyph.page.lastUse = uses;
+        return glyph;
+    }
 
-            int charWidth = charImage.getWidth();
-            int charHeight = charImage.getHeight();
+    private Glyph rasterize(int codePoint) {
+        GlyphRasterizer.GlyphImage image = rasterizer.rasterize(codePoint, distanceField, DISTANCE_FIELD_SPREAD);
+        int width = image.width;
+        int height = image.height;
+        if (image.pixels == null || width + GAP > pageSize || height + GAP > pageSize)
+            return new Glyph(0, 0, 0, 0, image.advance);
 
-            Glyph ch = new Glyph(charWidth, charHeight, x, image.getHeight() - charHeight, 0f);
-            g.drawImage(charImage, x, 0, null);
-            x += ch.width;
-            glyphs.put(c, ch);
+        // Images are stored top down, textures bottom up
+        int bytes = width * height * BYTES_PER_PIXEL;
+        if (upload == null || upload.capacity() < bytes) {
+            if (upload != null)
+                memFree(upload);
+            upload = memAlloc(bytes);
+        }
+        upload.clear();
+        for (int y = height - 1; y >= 0; y--) {
+            for (int x = 0; x < width; x++) {
+                int pixel = image.pixels[y * width + x];
+                upload.put((byte) (pixel >> 16))
+                        .put((byte) (pixel >> 8))
+                        .put((byte) pixel)
+                        .put((byte) (pixel >>> 24));
+            }
         }
+        upload.flip();
 
-        AffineTransform transform = AffineTransform.getScaleInstance(1f, -1f);
-        transform.translate(0, -image.getHeight());
-        AffineTransformOp operation = new AffineTransformOp(transform,
-                AffineTransformOp.TYPE_NEAREST_NEIGHBOR);
-        image = operation.filter(image, null);
-
-        int width = image.getWidth();
-        int height = image.getHeight();
-
-        ByteBuffer buffer = MemoryUtil.memAlloc(width * height * 4);
-        for (int i = 0; i < height; i++) {
-            for (int j = 0; j < width; j++) {
-                int pixel = image.getRGB(j, i);
-                buffer.put((byte) (pixel & 0xFF));
-                buffer.put((byte) ((pixel >> 8) & 0xFF));
-                buffer.put((byte) ((pixel >> 16) & 0xFF));
-                buffer.put((byte) ((pixel >> 24) & 0xFF));
+        Page page = null;
+        long position = -1;
+        for (Page candidate : pages) {
+            position = candidate.packer.pack(width + GAP, height + GAP);
+            if (position != -1) {
+                page = candidate;
+                break;
             }
         }
-        buffer.flip();
 
-        Texture fontTexture = new GlTexture(width, height, true, buffer);
-        MemoryUtil.memFree(buffer);
+        if (page == null) {
+            page = pages.size() < MAX_PAGES ? addPage() : evict();
+            position = page.packer.pack(width + GAP, height + GAP);
+        }
+
+        int x = (int) (position >>> 32);
+        int y = (int) position;
+        page.texture.bind();
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+        glTexSubImage2D(GL_TEXTURE_2D, 0, x, y, width, height, GL_RGBA, GL_UNSIGNED_BYTE, upload);
 
-        return fontTexture;
+        return new Glyph(width, height, x, y, image.advance, page,
+                image.left, image.bottom, image.quadWidth, image.quadHeight);
     }
 
-    private BufferedImage createCharImage(char c) {
-        int charWidth = metrics.charWidth(c);
-        int charHeight = metrics.getHeight();
+    private Page addPage() {
+        ByteBuffer clear = memCalloc(pageSize * pageSize * BYTES_PER_PIXEL);
+        GlTexture texture = new GlTexture(pageSize, pageSize, true, clear);
+        memFree(clear);
+
+        if (distanceField || rasterizer.isFiltered())
+            texture.setSampler(GlSampler.DEFAULT.withFilter(GlSampler.Filter.BILINEAR));
 
-        if (charWidth == 0) {
-            return null;
+        Page page = new Page(texture, new SkylinePacker(pageSize, pageSize));
+        pages.add(page);
+        return page;
+    }
+
+    /**
+     * Clears the page used least recently, dropping its glyphs from the cache.
+     */
+    private Page evict() {
+        Page page = pages.get(0);
+        for (Page candidate : pages) {
+            if (candidate.lastUse < page.lastUse)
+                page = candidate;
         }
 
-        BufferedImage image = new BufferedImage(charWidth, charHeight, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g = image.createGraphics();
-        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        g.setFont(font);
-        g.setColor(Color.WHITE);
-        g.drawString(String.valueOf(c), 0, metrics.getAscent());
-        g.dispose();
-        return image;
+        flush.run();
+        evictions++;
+
+        Iterator<Glyph> iterator = glyphs.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().page == page)
+                iterator.remove();
+        }
+
+        ByteBuffer clear = memCalloc(pageSize * pageSize * BYTES_PER_PIXEL);
+        page.texture.bind();
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+        glTexSubImage2D(GL_TEXTURE_2D, 0, 0, 0, pageSize, pageSize, GL_RGBA, GL_UNSIGNED_BYTE, clear);
+        memFree(clear);
+
+        page.packer = new SkylinePacker(pageSize, pageSize);
+        return page;
+    }
+
+    float getKerning(int left, int right) {
+        return rasterizer.getKerning(left, right);
     }
 
-    public int getWidth(String text) {
-        return metrics.stringWidth(text);
+    /**
+     * Returns the number of times a page has been cleared. Glyphs fetched
+     * before a page was cleared may no longer be in the atlas.
+     */
+    int getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the factor glyphs of this font are scaled by to draw them in the given font.
+     */
+    float getScale(Font font) {
+        return distanceField ? font.getSize2D() / DISTANCE_FIELD_SIZE : 1;
+    }
+
+    int getPageSize() {
+        return pageSize;
     }
 
     public int getHeight(String text) {
-        return (int) metrics.getLineMetrics(text, graphics).getHeight();
+        return rasterizer.getTextHeight(text);
+    }
+
+    void dispose() {
+        rasterizer.dispose();
+        if (upload != null)
+            memFree(upload);
+        pages.forEach(page -> page.texture.dispose());
+        pages.clear();
+        glyphs.clear();
+    }
+
+    static final class Page {
+        final GlTexture texture;
+        SkylinePacker packer;
+        long lastUse;
+
+        private Page(GlTexture texture, SkylinePacker packer) {
+            this.texture = texture;
+            this.packer = packer;
+        }
     }
 }
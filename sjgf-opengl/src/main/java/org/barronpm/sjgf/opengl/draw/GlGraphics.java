@@ -17,32 +17,42 @@
 package org.barronpm.sjgf.opengl.draw;
 
 import org.barronpm.sjgf.Disposable;
+import org.barronpm.sjgf.GameWindow;
 import org.barronpm.sjgf.draw.Camera;
 import org.barronpm.sjgf.draw.Color;
 import org.barronpm.sjgf.draw.Graphics;
 import org.barronpm.sjgf.draw.Texture;
-import org.barronpm.sjgf.math.Vector3;
-import org.barronpm.sjgf.opengl.GlGameWindow;
 import org.barronpm.sjgf.opengl.util.FileUtils;
 import org.barronpm.sjgf.util.Args;
 
 import java.awt.Font;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
-import static org.lwjgl.glfw.GLFW.glfwSetWindowSizeCallback;
 import static org.lwjgl.opengl.GL11.*;
-import static org.lwjgl.opengl.GL15.*;
 import static org.lwjgl.opengl.GL20.*;
-import static org.lwjgl.opengl.GL30.*;
 
 public final class GlGraphics implements Graphics, Disposable {
 
     private static final int DEFAULT_SEGMENTS = 50;
+    private static final int LAYOUT_CACHE_SIZE = 256;
+
+    /**
+     * The number of primitives each batch can hold before it grows.
+     */
+    public static final int DEFAULT_BATCH_CAPACITY = 1024;
+
+    /**
+     * The most memory, in bytes, that each batch may grow to use.
+     */
+    public static final long DEFAULT_MAX_BATCH_MEMORY = 4L << 20;
 
     private float z = -1f;
 
     private Color color = Color.BLACK;
+    private int packedColor = VertexFormat.pack(color);
     private Font font = new Font(Font.MONOSPACED, Font.PLAIN, 16);
     private Camera camera;
 
@@ -51,24 +61,53 @@ public final class GlGraphics implements Graphics, Disposable {
     private GlShaderProgram shapeProgram;
     private GlShaderProgram textureProgram;
 
+    private GlQuadIndexBuffer quadIndices;
+
     private GlShapeBatch lineBatch;
     private GlShapeBatch triangleBatch;
+    private GlShapeBatch quadBatch;
     private GlTextureBatch textureBatch;
+    private GlSamplerCache samplers;
+
+    private final Map<Font, GlFont> bitmapFonts = new HashMap<>();
+    // Distance field fonts are shared by every size of a typeface, so they are keyed by the typeface
+    private final Map<Font, GlFont> distanceFieldFonts = new HashMap<>();
+    // and looked up by the font drawn in, so that its typeface is only derived once
+    private final Map<Font, GlFont> distanceFieldFontsBySize = new HashMap<>();
+    private final Map<String, GlTrueTypeFont> trueTypeFonts = new HashMap<>();
+    private final Map<LayoutKey, GlTextLayout> layoutCache = new LinkedHashMap<LayoutKey, GlTextLayout>(16, .75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<LayoutKey, GlTextLayout> eldest) {
+            if (size() <= LAYOUT_CACHE_SIZE)
+                return false;
+            eldest.getValue().dispose();
+            return true;
+        }
+    };
+    private boolean distanceFieldText = true;
 
-    private int vao;
-    private int vertexVbo;
-    private int colorVbo;
-
-    private final Map<Font, GlFont> fontMap = new HashMap<>();
+    public GlGraphics(GameWindow window) {
+        this(window.getWidth(), window.getHeight(), DEFAULT_BATCH_CAPACITY, DEFAULT_MAX_BATCH_MEMORY);
+    }
 
-    public GlGraphics(GlGameWindow window) {
+    /**
+     * Creates a graphics object whose batches start with room for
+     * <code>batchCapacity</code> primitives and grow, as frames require,
+     * until each uses at most <code>maxBatchMemory</code> bytes.
+     *
+     * @param width the width of the surface being drawn to, in pixels
+     * @param height the height of the surface being drawn to, in pixels
+     * @param batchCapacity the initial number of primitives per batch
+     * @param maxBatchMemory the maximum memory of a single batch, in bytes
+     * @throws IllegalArgumentException if batchCapacity is not positive
+     */
+    public GlGraphics(int width, int height, int batchCapacity, long maxBatchMemory) {
         glEnable(GL_BLEND);
         glEnable(GL_DEPTH_TEST);
         glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
         glDepthFunc(GL_LESS);
 
-        defaultCamera = new PixelBasedCamera(window.getWidth(), window.getHeight());
-        glfwSetWindowSizeCallback(window.getHandle(), defaultCamera);
+        defaultCamera = new PixelBasedCamera(width, height);
         camera = defaultCamera;
 
         GlShader vertex = new GlShader(GL_VERTEX_SHADER,
@@ -80,26 +119,20 @@ public final class GlGraphics implements Graphics, Disposable {
 
         vertex = new GlShader(GL_VERTEX_SHADER,
                 FileUtils.getResourceContents("/shaders/texture.vert"));
+        int textureSlots = GlTextureBatch.getSlotCount();
         fragment = new GlShader(GL_FRAGMENT_SHADER,
-                FileUtils.getResourceContents("/shaders/texture.frag"));
+                GlTextureBatch.createFragmentSource(textureSlots));
 
         textureProgram = new GlShaderProgram(vertex, fragment);
 
-        vao = glGenVertexArrays();
-        glBindVertexArray(vao);
-
-        vertexVbo = glGenBuffers();
-        glBindBuffer(GL_ARRAY_BUFFER, vertexVbo);
-        glVertexAttribPointer(0, 3, GL_FLOAT, false, 0, 0);
-
-        colorVbo = glGenBuffers();
-        glBindBuffer(GL_ARRAY_BUFFER, colorVbo);
-        glVertexAttribPointer(1, 4, GL_FLOAT, false, 0, 0);
+        quadIndices = new GlQuadIndexBuffer(batchCapacity);
 
-        glBindVertexArray(0);
-        triangleBatch = new GlShapeBatch(shapeProgram, vao, vertexVbo, colorVbo, 3);
-        lineBatch = new GlShapeBatch(shapeProgram, vao, vertexVbo, colorVbo, 2);
-        textureBatch = new GlTextureBatch(textureProgram);
+        triangleBatch = new GlShapeBatch(shapeProgram, camera, 3, batchCapacity, maxBatchMemory);
+        lineBatch = new GlShapeBatch(shapeProgram, camera, 2, batchCapacity, maxBatchMemory);
+        quadBatch = new GlShapeBatch(shapeProgram, camera, quadIndices, batchCapacity, maxBatchMemory);
+        samplers = new GlSamplerCache();
+        textureBatch = new GlTextureBatch(textureProgram, camera, quadIndices, samplers, textureSlots,
+                batchCapacity, maxBatchMemory);
     }
 
     @Override
@@ -111,6 +144,7 @@ public final class GlGraphics implements Graphics, Disposable {
     public void setColor(Color color) {
         Args.notNull(color, "color");
         this.color = color;
+        this.packedColor = VertexFormat.pack(color);
     }
 
     @Override
@@ -129,7 +163,49 @@ public final class GlGraphics implements Graphics, Disposable {
     }
 
     public void setCamera(Camera camera) {
-        this.camera = camera == null ? defaultCamera : camera;
+        Camera next = camera == null ? defaultCamera : camera;
+        if (next == this.camera)
+            return;
+
+        triangleBatch.setCamera(next);
+        quadBatch.setCamera(next);
+        lineBatch.setCamera(next);
+        textureBatch.setCamera(next);
+        this.camera = next;
+    }
+
+    /**
+     * Returns the camera used when no other camera is set, which maps
+     * coordinates one-to-one onto the pixels of the surface being drawn to.
+     *
+     * @return the default camera
+     */
+    public PixelBasedCamera getDefaultCamera() {
+        return defaultCamera;
+    }
+
+    /**
+     * Returns whether textures are sorted before they are drawn.
+     *
+     * @return whether textures are sorted by texture
+     * @see #setSortingTextures(boolean)
+     */
+    public boolean isSortingTextures() {
+        return textureBatch.isSortingByTexture();
+    }
+
+    /**
+     * Sets whether queued textures are grouped by texture before they are drawn.
+     * A draw call samples from a limited number of textures; sorting lets a flush
+     * hold any number of them, drawn in one call per full set. Depth ordering is
+     * preserved by the depth buffer, but overlapping translucent textures may
+     * blend in a different order.
+     *
+     * @param sort whether to sort textures
+     * @see #isSortingTextures()
+     */
+    public void setSortingTextures(boolean sort) {
+        textureBatch.setSortByTexture(sort);
     }
 
     @Override
@@ -149,9 +225,7 @@ public final class GlGraphics implements Graphics, Disposable {
             float y1 = (float) (height * Math.sin(theta));
             float y2 = (float) (height * Math.sin(theta + inc));
 
-            lineBatch.add(color,
-                    camera.project(cx + x1, cy + y1, z),
-                    camera.project(cx + x2, cy + y2, z));
+            lineBatch.add(packedColor, z, cx + x1, cy + y1, cx + x2, cy + y2);
         }
         incZ();
     }
@@ -168,71 +242,62 @@ public final class GlGraphics implements Graphics, Disposable {
 
     @Override
     public void drawLine(float x1, float y1, float x2, float y2) {
-        lineBatch.add(color,
-                camera.project(x1, y1, z),
-                camera.project(x2, y2, z));
+        lineBatch.add(packedColor, z, x1, y1, x2, y2);
         incZ();
     }
 
+    /**
+     * Draws a string. Layouts of recently drawn strings are cached, so a
+     * string drawn every frame in the same font is only laid out once.
+     */
     @Override
     public void drawString(String string, float x, float y) {
-        if (!fontMap.containsKey(font))
-            fontMap.put(font, new GlFont(font));
-
-        GlFont font = fontMap.get(this.font);
+        Args.notNull(string, "string");
 
-        int textHeight = font.getHeight(string);
-
-        float drawX = x;
-        float drawY = y;
-        if (textHeight > font.height) {
-            drawY += textHeight - font.height;
+        LayoutKey key = new LayoutKey(string, font);
+        GlTextLayout layout = layoutCache.get(key);
+        if (layout == null) {
+            layout = new GlTextLayout(string, font);
+            layoutCache.put(key, layout);
         }
 
-        for (int i = 0; i < string.length(); i++) {
-            char ch = string.charAt(i);
-            if (ch == '\n') {
-                drawY -= font.height;
-                drawX = x;
-                continue;
-            }
-
-            if (ch == '\r') {
-                continue;
-            }
-
-            Glyph g = font.glyphs.get(ch);
-
-            Vector3 v0 = camera.project(drawX, drawY, z);
-            Vector3 v1 = camera.project(drawX, drawY + g.height, z);
-            Vector3 v2 = camera.project(drawX + g.width, drawY, z);
-            Vector3 v3 = camera.project(drawX + g.width, drawY + g.height, z);
+        drawText(layout, x, y);
+    }
 
-            float s1 = (float) g.x / font.atlas.getWidth();
-            float t1 = (float) g.y / font.atlas.getHeight();
-            float s2 = (float) (g.x + g.width) / font.atlas.getWidth();
-            float t2 = (float) (g.y + g.height) / font.atlas.getHeight();
+    /**
+     * Creates a layout of a string in the current font, to be drawn with
+     * {@link #drawText(GlTextLayout, float, float)}.
+     *
+     * @param string the string to lay out
+     * @return the layout, which must be disposed once no longer needed
+     */
+    public GlTextLayout createTextLayout(String string) {
+        Args.notNull(string, "string");
+        return new GlTextLayout(string, font);
+    }
 
-            textureBatch.addRegion(font.atlas, color, s1, t1, s2, t2, v0, v1, v2, v2, v3, v1);
-            drawX += g.width;
-        }
+    /**
+     * Draws a text layout in the current color, with the bottom left of its
+     * last line at (x, y).
+     *
+     * @param layout the layout to draw
+     * @param x the x coordinate to draw at
+     * @param y the y coordinate to draw at
+     */
+    public void drawText(GlTextLayout layout, float x, float y) {
+        Args.notNull(layout, "layout");
+
+        GlFont glFont = getFont(layout.getFont());
+        layout.draw(glFont, textureBatch, x, y, z, packedColor);
         incZ();
     }
 
     @Override
     public void drawRect(float x, float y, float width, float height) {
-        lineBatch.add(color,
-                camera.project(x, y, z),
-                camera.project(x, y + height, z));
-        lineBatch.add(color,
-                camera.project(x, y + height, z),
-                camera.project(x + width, y + height, z));
-        lineBatch.add(color,
-                camera.project(x + width, y + height, z),
-                camera.project(x + width, y, z));
-        lineBatch.add(color,
-                camera.project(x + width, y, z),
-                camera.project(x, y, z));
+        lineBatch.add(packedColor, z, x, y, x, y + height);
+        lineBatch.add(packedColor, z, x, y + height, x + width, y + height);
+        lineBatch.add(packedColor, z, x + width, y + height, x + width, y);
+        lineBatch.add(packedColor, z, x + width, y, x, y);
         incZ();
     }
 
@@ -253,14 +318,7 @@ public final class GlGraphics implements Graphics, Disposable {
 
     @Override
     public void drawTexture(Texture texture, Color color, float x, float y, float width, float height) {
-        Vector3 v0 = camera.project(x, y, z);
-        Vector3 v1 = camera.project(x, y + height, z);
-        Vector3 v2 = camera.project(x + width, y, z);
-        Vector3 v3 = camera.project(x + width, y + height, z);
-
-        textureBatch.add(texture, color,
-                v0, v1, v2,
-                v2, v3, v1);
+        textureBatch.add(texture, VertexFormat.pack(color), x, y, z, width, height);
         incZ();
     }
 
@@ -278,46 +336,169 @@ public final class GlGraphics implements Graphics, Disposable {
             float y1 = (float) (height * Math.sin(theta));
             float y2 = (float) (height * Math.sin(theta + inc));
 
-            triangleBatch.add(color,
-                    camera.project(x, y, z),
-                    camera.project(x + x1, y + y1, z),
-                    camera.project(x + x2, y + y2, z));
+            triangleBatch.add(packedColor, z, x, y, x + x1, y + y1, x + x2, y + y2);
         }
         incZ();
     }
 
     @Override
     public void fillRect(float x, float y, float width, float height) {
-        triangleBatch.add(color,
-                camera.project(x, y, z),
-                camera.project(x, y + height, z),
-                camera.project(x + width, y, z)
-        );
-        triangleBatch.add(color,
-                camera.project(x + width, y + height, z),
-                camera.project(x + width, y, z),
-                camera.project(x, y + height, z)
-        );
+        quadBatch.add(packedColor, z, x, y, x, y + height, x + width, y + height, x + width, y);
         incZ();
     }
 
     public void draw() {
         triangleBatch.flush();
+        quadBatch.flush();
         lineBatch.flush();
         textureBatch.flush();
+
+        triangleBatch.endFrame();
+        quadBatch.endFrame();
+        lineBatch.endFrame();
+        textureBatch.endFrame();
         z = -.9f;
     }
 
     @Override
     public void dispose() {
+        triangleBatch.dispose();
+        quadBatch.dispose();
+        lineBatch.dispose();
+        textureBatch.dispose();
+        samplers.dispose();
+        layoutCache.values().forEach(GlTextLayout::dispose);
+        layoutCache.clear();
+        bitmapFonts.values().forEach(GlFont::dispose);
+        bitmapFonts.clear();
+        distanceFieldFonts.values().forEach(GlFont::dispose);
+        distanceFieldFonts.clear();
+        distanceFieldFontsBySize.clear();
+        quadIndices.dispose();
         shapeProgram.dispose();
         textureProgram.dispose();
-        glDeleteBuffers(vertexVbo);
-        glDeleteBuffers(colorVbo);
-        glDeleteVertexArrays(vao);
     }
 
-    private void incZ() {
+    /**
+     * Registers a TrueType font under a name. Text drawn in any {@link Font}
+     * with that name is then rasterized from the TrueType font with
+     * stb_truetype, at the font's size, rather than through Java 2D.
+     *
+     * The TrueType font must stay undisposed while it is registered; text in
+     * a disposed font fails with an {@link IllegalStateException}.
+     *
+     * @param name the font name to register it under
+     * @param font the TrueType font, or null to remove the registration
+     */
+    public void registerFont(String name, GlTrueTypeFont font) {
+        Args.notNull(name, "name");
+        if (font == null)
+            trueTypeFonts.remove(name);
+        else
+            trueTypeFonts.put(name, font);
+
+        // Glyphs already cached for this name came from the previous font
+        removeFonts(bitmapFonts, name, true);
+        removeFonts(distanceFieldFonts, name, true);
+        removeFonts(distanceFieldFontsBySize, name, false);
+    }
+
+    private void removeFonts(Map<Font, GlFont> fonts, String name, boolean dispose) {
+        Iterator<Map.Entry<Font, GlFont>> iterator = fonts.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Font, GlFont> entry = iterator.next();
+            if (entry.getKey().getName().equals(name)) {
+                if (dispose) {
+                    textureBatch.flush();
+                    entry.getValue().dispose();
+                }
+                iterator.remove();
+            }
+        }
+    }
+
+    private GlFont getFont(Font font) {
+        Map<Font, GlFont> fonts = distanceFieldText ? distanceFieldFontsBySize : bitmapFonts;
+        GlFont glFont = fonts.get(font);
+        if (glFont != null)
+            return glFont;
+
+        if (distanceFieldText)
+            glFont = distanceFieldFonts.computeIfAbsent(GlFont.typeface(font), f -> createFont(f, true));
+        else
+            glFont = createFont(font, false);
+        fonts.put(font, glFont);
+        return glFont;
+    }
+
+    private GlFont createFont(Font font, boolean distanceField) {
+        GlTrueTypeFont trueTypeFont = trueTypeFonts.get(font.getName());
+        if (trueTypeFont != null)
+            return new GlFont(trueTypeFont, font, distanceField, textureBatch::flush);
+        return new GlFont(font, distanceField, textureBatch::flush);
+    }
+
+    public boolean isDistanceFieldText() {
+        return distanceFieldText;
+    }
+
+    /**
+     * Sets whether text is drawn from distance field atlases, which are shared
+     * by every size of a typeface and stay sharp when scaled, or from bitmap
+     * atlases rasterized for each font size. Distance field text is the default.
+     *
+     * @param distanceFieldText whether to draw text from distance fields
+     */
+    public void setDistanceFieldText(boolean distanceFieldText) {
+        this.distanceFieldText = distanceFieldText;
+    }
+
+    GlShapeBatch getLineBatch() {
+        return lineBatch;
+    }
+
+    GlShapeBatch getTriangleBatch() {
+        return triangleBatch;
+    }
+
+    GlShapeBatch getQuadBatch() {
+        return quadBatch;
+    }
+
+    GlTextureBatch getTextureBatch() {
+        return textureBatch;
+    }
+
+    float getZ() {
+        return z;
+    }
+
+    void incZ() {
         z += 1e-7;
     }
-}
\ No newline at end of file
+
+    private static final class LayoutKey {
+        private final String text;
+        private final Font font;
+
+        private LayoutKey(String text, Font font) {
+            this.text = text;
+            this.font = font;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            LayoutKey key = (LayoutKey) o;
+
+            return text.equals(key.text) && font.equals(key.font);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * text.hashCode() + font.hashCode();
+        }
+    }
+}
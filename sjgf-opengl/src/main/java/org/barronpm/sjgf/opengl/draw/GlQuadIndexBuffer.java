@@ -0,0 +1,86 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.opengl.draw;
+
+import org.barronpm.sjgf.Disposable;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.IntBuffer;
+
+import static org.lwjgl.opengl.GL11.GL_UNSIGNED_INT;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL31.GL_COPY_WRITE_BUFFER;
+
+/**
+ * A static element buffer holding the 0-1-2-2-3-0 index pattern for a run of quads.
+ * Quad vertices are expected in the order bottom-left, top-left, top-right, bottom-right.
+ */
+class GlQuadIndexBuffer implements Disposable {
+
+    static final int TYPE = GL_UNSIGNED_INT;
+    static final int INDICES_PER_QUAD = 6;
+    static final int VERTICES_PER_QUAD = 4;
+
+    private final int handle;
+    private int capacity = 0;
+
+    GlQuadIndexBuffer(int capacity) {
+        handle = glGenBuffers();
+        ensureCapacity(capacity);
+    }
+
+    /**
+     * Grows this buffer so that it can index at least the provided number of quads.
+     * The buffer keeps its name, so vertex arrays it is bound to remain valid.
+     */
+    void ensureCapacity(int quads) {
+        if (quads <= capacity)
+            return;
+
+        IntBuffer indices = MemoryUtil.memAllocInt(quads * INDICES_PER_QUAD);
+        for (int i = 0; i < quads; i++) {
+            int vertex = i * VERTICES_PER_QUAD;
+            indices.put(vertex).put(vertex + 1).put(vertex + 2)
+                    .put(vertex + 2).put(vertex + 3).put(vertex);
+        }
+        indices.flip();
+
+        // Uploaded through the copy target, as the element array binding belongs to the bound vertex array
+        glBindBuffer(GL_COPY_WRITE_BUFFER, handle);
+        glBufferData(GL_COPY_WRITE_BUFFER, indices, GL_STATIC_DRAW);
+        glBindBuffer(GL_COPY_WRITE_BUFFER, 0);
+        MemoryUtil.memFree(indices);
+
+        capacity = quads;
+    }
+
+    /**
+     * Binds this buffer as the element array of the currently bound vertex array.
+     */
+    void bind() {
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, handle);
+    }
+
+    static long offset(int quad) {
+        return (long) quad * INDICES_PER_QUAD * Integer.BYTES;
+    }
+
+    @Override
+    public void dispose() {
+        glDeleteBuffers(handle);
+    }
+}
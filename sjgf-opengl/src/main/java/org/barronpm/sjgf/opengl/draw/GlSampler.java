@@ -0,0 +1,176 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.opengl.draw;
+
+import org.barronpm.sjgf.util.Args;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL12.GL_CLAMP_TO_EDGE;
+import static org.lwjgl.opengl.GL14.GL_MIRRORED_REPEAT;
+
+/**
+ * The parameters used to sample a texture: its filtering, wrap modes and
+ * anisotropy. Samplers are immutable; equal samplers share a single GL sampler
+ * object when drawn.
+ *
+ * A texture whose sampler filters between mip levels has its mipmaps generated
+ * when the sampler is set, unless it already has them.
+ */
+public final class GlSampler {
+
+    /**
+     * The sampler used by textures that haven't been given one: nearest
+     * filtering, clamped to the edge, without mipmaps.
+     */
+    public static final GlSampler DEFAULT = new GlSampler(Filter.NEAREST, Wrap.CLAMP_TO_EDGE, Wrap.CLAMP_TO_EDGE, 1);
+
+    /**
+     * Trilinear filtering, clamped to the edge. Suited to sprites that are drawn scaled down.
+     */
+    public static final GlSampler TRILINEAR = DEFAULT.withFilter(Filter.TRILINEAR);
+
+    public enum Filter {
+        /**
+         * Samples the nearest texel, without mipmaps.
+         */
+        NEAREST(GL_NEAREST, GL_NEAREST),
+        /**
+         * Interpolates between the nearest texels, without mipmaps.
+         */
+        BILINEAR(GL_LINEAR, GL_LINEAR),
+        /**
+         * Samples the nearest texel of the nearest mip level when minified,
+         * keeping hard edges while avoiding aliasing.
+         */
+        NEAREST_MIPMAP(GL_NEAREST_MIPMAP_NEAREST, GL_NEAREST),
+        /**
+         * Interpolates between texels and between mip levels.
+         */
+        TRILINEAR(GL_LINEAR_MIPMAP_LINEAR, GL_LINEAR);
+
+        final int minFilter;
+        final int magFilter;
+
+        Filter(int minFilter, int magFilter) {
+            this.minFilter = minFilter;
+            this.magFilter = magFilter;
+        }
+
+        public boolean usesMipmaps() {
+            return minFilter != magFilter;
+        }
+    }
+
+    public enum Wrap {
+        CLAMP_TO_EDGE(GL_CLAMP_TO_EDGE),
+        REPEAT(GL_REPEAT),
+        MIRRORED_REPEAT(GL_MIRRORED_REPEAT);
+
+        final int mode;
+
+        Wrap(int mode) {
+            this.mode = mode;
+        }
+    }
+
+    private final Filter filter;
+    private final Wrap wrapS;
+    private final Wrap wrapT;
+    private final float anisotropy;
+
+    /**
+     * Creates a sampler.
+     *
+     * @param filter the filter used when the texture is minified or magnified
+     * @param wrapS the wrap mode of horizontal texture coordinates
+     * @param wrapT the wrap mode of vertical texture coordinates
+     * @param anisotropy the maximum anisotropy, where 1 disables anisotropic
+     *                   filtering. Limited to what the driver supports.
+     * @throws IllegalArgumentException if anisotropy is less than 1
+     */
+    public GlSampler(Filter filter, Wrap wrapS, Wrap wrapT, float anisotropy) {
+        Args.notNull(filter, "filter");
+        Args.notNull(wrapS, "wrapS");
+        Args.notNull(wrapT, "wrapT");
+        if (!(anisotropy >= 1))
+            throw new IllegalArgumentException("Anisotropy must be at least 1");
+
+        this.filter = filter;
+        this.wrapS = wrapS;
+        this.wrapT = wrapT;
+        this.anisotropy = anisotropy;
+    }
+
+    public GlSampler withFilter(Filter filter) {
+        return new GlSampler(filter, wrapS, wrapT, anisotropy);
+    }
+
+    public GlSampler withWrap(Wrap wrap) {
+        return new GlSampler(filter, wrap, wrap, anisotropy);
+    }
+
+    public GlSampler withWrap(Wrap wrapS, Wrap wrapT) {
+        return new GlSampler(filter, wrapS, wrapT, anisotropy);
+    }
+
+    public GlSampler withAnisotropy(float anisotropy) {
+        return new GlSampler(filter, wrapS, wrapT, anisotropy);
+    }
+
+    public Filter getFilter() {
+        return filter;
+    }
+
+    public Wrap getWrapS() {
+        return wrapS;
+    }
+
+    public Wrap getWrapT() {
+        return wrapT;
+    }
+
+    public float getAnisotropy() {
+        return anisotropy;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        GlSampler sampler = (GlSampler) o;
+
+        return filter == sampler.filter
+                && wrapS == sampler.wrapS
+                && wrapT == sampler.wrapT
+                && Float.compare(anisotropy, sampler.anisotropy) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = filter.hashCode();
+        result = 31 * result + wrapS.hashCode();
+        result = 31 * result + wrapT.hashCode();
+        result = 31 * result + Float.floatToIntBits(anisotropy);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return filter + "," + wrapS + "," + wrapT + ",x" + anisotropy;
+    }
+}
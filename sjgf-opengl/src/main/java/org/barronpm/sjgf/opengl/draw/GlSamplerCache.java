@@ -0,0 +1,79 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.opengl.draw;
+
+import org.barronpm.sjgf.Disposable;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.lwjgl.opengl.EXTTextureFilterAnisotropic.GL_MAX_TEXTURE_MAX_ANISOTROPY_EXT;
+import static org.lwjgl.opengl.EXTTextureFilterAnisotropic.GL_TEXTURE_MAX_ANISOTROPY_EXT;
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL33.*;
+
+/**
+ * Creates a GL sampler object for each distinct {@link GlSampler} and keeps it
+ * until disposed, so textures sharing sampler parameters bind the same object.
+ */
+class GlSamplerCache implements Disposable {
+
+    private final Map<GlSampler, Integer> handles = new HashMap<>();
+    private final float maxAnisotropy;
+
+    GlSamplerCache() {
+        GLCapabilities caps = GL.getCapabilities();
+        maxAnisotropy = caps.GL_EXT_texture_filter_anisotropic || caps.GL_ARB_texture_filter_anisotropic
+                ? glGetFloat(GL_MAX_TEXTURE_MAX_ANISOTROPY_EXT)
+                : 1;
+    }
+
+    void bind(int unit, GlSampler sampler) {
+        glBindSampler(unit, handleOf(sampler));
+    }
+
+    int handleOf(GlSampler sampler) {
+        Integer handle = handles.get(sampler);
+        if (handle == null) {
+            handle = create(sampler);
+            handles.put(sampler, handle);
+        }
+        return handle;
+    }
+
+    private int create(GlSampler sampler) {
+        int handle = glGenSamplers();
+        glSamplerParameteri(handle, GL_TEXTURE_MIN_FILTER, sampler.getFilter().minFilter);
+        glSamplerParameteri(handle, GL_TEXTURE_MAG_FILTER, sampler.getFilter().magFilter);
+        glSamplerParameteri(handle, GL_TEXTURE_WRAP_S, sampler.getWrapS().mode);
+        glSamplerParameteri(handle, GL_TEXTURE_WRAP_T, sampler.getWrapT().mode);
+        if (maxAnisotropy > 1) {
+            glSamplerParameterf(handle, GL_TEXTURE_MAX_ANISOTROPY_EXT,
+                    Math.min(sampler.getAnisotropy(), maxAnisotropy));
+        }
+        return handle;
+    }
+
+    @Override
+    public void dispose() {
+        for (int handle : handles.values())
+            glDeleteSamplers(handle);
+        handles.clear();
+    }
+}
@@ -18,6 +18,10 @@ package org.barronpm.sjgf.opengl.draw;
 
 import org.barronpm.sjgf.Disposable;
 import org.barronpm.sjgf.exceptions.SJGFException;
+import org.barronpm.sjgf.math.Matrix4;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.FloatBuffer;
 
 import static org.lwjgl.opengl.GL11.GL_TRUE;
 import static org.lwjgl.opengl.GL20.*;
@@ -25,6 +29,7 @@ import static org.lwjgl.opengl.GL20.*;
 class GlShaderProgram implements Disposable {
 
     private final int program;
+    private final FloatBuffer matrixBuffer = MemoryUtil.memAllocFloat(16);
     private boolean disposed = false;
 
     GlShaderProgram(GlShader vertexShader, GlShader fragmentShader) {
@@ -48,8 +53,20 @@ class GlShaderProgram implements Disposable {
         return disposed ? -1 : program;
     }
 
+    int getUniformLocation(String name) {
+        return glGetUniformLocation(program, name);
+    }
+
+    /**
+     * Uploads a matrix to the provided uniform of this program, which must be in use.
+     */
+    void setUniform(int location, Matrix4 matrix) {
+        glUniformMatrix4fv(location, false, matrix.get(matrixBuffer));
+    }
+
     @Override
     public void dispose() {
+        MemoryUtil.memFree(matrixBuffer);
         glDeleteProgram(program);
         disposed = true;
     }
@@ -16,105 +16,97 @@
 
 package org.barronpm.sjgf.opengl.draw;
 
-import org.barronpm.sjgf.draw.Color;
-import org.barronpm.sjgf.math.Vector3;
-import org.lwjgl.system.MemoryUtil;
-
-import java.nio.FloatBuffer;
+import org.barronpm.sjgf.draw.Camera;
 
 import static org.lwjgl.opengl.GL11.*;
-import static org.lwjgl.opengl.GL15.*;
-import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL20.glEnableVertexAttribArray;
 import static org.lwjgl.opengl.GL30.glBindVertexArray;
 
-class GlShapeBatch {
-
-    private static final int MAX_SHAPES = 30;
-
-    private final int vao;
-    private final int vertexVbo;
-    private final int colorVbo;
-
-    private final float[] vertexArray;
-    private final float[] colorArray;
+class GlShapeBatch extends GlBatch {
 
-    private final GlShaderProgram shaderProgram;
-
-    private int numShapes = 0;
+    private final GlQuadIndexBuffer indices;
     private final int numVertices;
 
-    GlShapeBatch(GlShaderProgram shaderProgram, int vao, int vertexVbo, int colorVbo, int numVertices) {
-        this.shaderProgram = shaderProgram;
-        this.vao = vao;
-        this.vertexVbo = vertexVbo;
-        this.colorVbo = colorVbo;
-        this.numVertices = numVertices;
-        this.vertexArray = new float[MAX_SHAPES * numVertices * 3];
-        this.colorArray = new float[MAX_SHAPES * numVertices * 4];
+    GlShapeBatch(GlShaderProgram shaderProgram, Camera camera, int numVertices, int capacity, long maxBytes) {
+        this(shaderProgram, camera, numVertices, null, capacity, maxBytes);
     }
 
-    void add(Color color, Vector3... vertices) {
-        for (int i = 0; i < numVertices; i++) {
-            vertexArray[numShapes * numVertices * 3 + i * 3] = vertices[i].getX();
-            vertexArray[numShapes * numVertices * 3 + i * 3 + 1] = vertices[i].getY();
-            vertexArray[numShapes * numVertices * 3 + i * 3 + 2] = vertices[i].getZ();
-
-            colorArray[numShapes * numVertices * 4 + i * 4] = color.getRed();
-            colorArray[numShapes * numVertices * 4 + i * 4 + 1] = color.getGreen();
-            colorArray[numShapes * numVertices * 4 + i * 4 + 2] = color.getBlue();
-            colorArray[numShapes * numVertices * 4 + i * 4 + 3] = color.getAlpha();
-        }
-        numShapes++;
-        if (numShapes == MAX_SHAPES)
-            flush();
+    GlShapeBatch(GlShaderProgram shaderProgram, Camera camera, GlQuadIndexBuffer indices,
+                 int capacity, long maxBytes) {
+        this(shaderProgram, camera, GlQuadIndexBuffer.VERTICES_PER_QUAD, indices, capacity, maxBytes);
     }
 
-    void flush() {
-        FloatBuffer vertices = MemoryUtil.memAllocFloat(numShapes * numVertices * 3);
-        FloatBuffer colors = MemoryUtil.memAllocFloat(numShapes * numVertices * 4);
+    private GlShapeBatch(GlShaderProgram shaderProgram, Camera camera, int numVertices,
+                         GlQuadIndexBuffer indices, int capacity, long maxBytes) {
+        super(shaderProgram, camera, numVertices * VertexFormat.SHAPE_STRIDE, capacity, maxBytes);
+        this.numVertices = numVertices;
+        this.indices = indices;
 
-        float[] tmp = new float[numShapes * numVertices * 3];
-        System.arraycopy(vertexArray, 0, tmp, 0, numShapes * numVertices * 3);
-        vertices.put(tmp);
-        tmp = new float[numShapes * numVertices * 4];
-        System.arraycopy(colorArray, 0, tmp, 0, numShapes * numVertices * 4);
-        colors.put(tmp);
+        glBindVertexArray(vao);
+        glEnableVertexAttribArray(0);
+        glEnableVertexAttribArray(1);
+        if (indices != null) {
+            indices.ensureCapacity(capacity);
+            indices.bind();
+        }
+        glBindVertexArray(0);
+    }
 
-        vertices.flip();
-        colors.flip();
+    void add(int color, float z, float x1, float y1, float x2, float y2) {
+        checkCamera();
+        int index = position();
+        index = VertexFormat.putShapeVertex(vertices, index, x1, y1, z, color);
+        VertexFormat.putShapeVertex(vertices, index, x2, y2, z, color);
+        next();
+    }
 
-        glUseProgram(shaderProgram.getHandle());
-        glBindBuffer(GL_ARRAY_BUFFER, vertexVbo);
-        glBufferData(GL_ARRAY_BUFFER, vertices, GL_STATIC_DRAW);
-        glBindBuffer(GL_ARRAY_BUFFER, colorVbo);
-        glBufferData(GL_ARRAY_BUFFER, colors, GL_STATIC_DRAW);
-        glBindBuffer(GL_ARRAY_BUFFER, 0);
+    void add(int color, float z, float x1, float y1, float x2, float y2, float x3, float y3) {
+        checkCamera();
+        int index = position();
+        index = VertexFormat.putShapeVertex(vertices, index, x1, y1, z, color);
+        index = VertexFormat.putShapeVertex(vertices, index, x2, y2, z, color);
+        VertexFormat.putShapeVertex(vertices, index, x3, y3, z, color);
+        next();
+    }
 
-        MemoryUtil.memFree(vertices);
-        MemoryUtil.memFree(colors);
+    void add(int color, float z, float x1, float y1, float x2, float y2, float x3, float y3,
+             float x4, float y4) {
+        checkCamera();
+        int index = position();
+        index = VertexFormat.putShapeVertex(vertices, index, x1, y1, z, color);
+        index = VertexFormat.putShapeVertex(vertices, index, x2, y2, z, color);
+        index = VertexFormat.putShapeVertex(vertices, index, x3, y3, z, color);
+        VertexFormat.putShapeVertex(vertices, index, x4, y4, z, color);
+        next();
+    }
 
-        glBindVertexArray(vao);
-        glEnableVertexAttribArray(0);
-        glEnableVertexAttribArray(1);
+    @Override
+    void pointAttributes(int offset) {
+        VertexFormat.pointShapeAttributes(offset);
+    }
 
+    @Override
+    void draw(int count) {
         switch (numVertices) {
-            case 1:
-                glDrawArrays(GL_POINT, 0, numShapes * numVertices);
-                break;
             case 2:
-                glDrawArrays(GL_LINES, 0, numShapes * numVertices);
+                glDrawArrays(GL_LINES, 0, count * numVertices);
                 break;
             case 3:
-                glDrawArrays(GL_TRIANGLES, 0, numShapes * numVertices);
+                glDrawArrays(GL_TRIANGLES, 0, count * numVertices);
+                break;
+            case 4:
+                glDrawElements(GL_TRIANGLES, count * GlQuadIndexBuffer.INDICES_PER_QUAD,
+                        GlQuadIndexBuffer.TYPE, 0);
                 break;
             default:
                 break;
         }
+    }
 
-        glDisableVertexAttribArray(0);
-        glDisableVertexAttribArray(1);
-        glBindVertexArray(0);
-
-        numShapes = 0;
+    @Override
+    void setCapacity(int capacity) {
+        super.setCapacity(capacity);
+        if (indices != null)
+            indices.ensureCapacity(capacity);
     }
-}
\ No newline at end of file
+}
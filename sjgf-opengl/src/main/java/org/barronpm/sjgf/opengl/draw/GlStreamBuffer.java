@@ -0,0 +1,94 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.opengl.draw;
+
+import org.barronpm.sjgf.Disposable;
+import org.barronpm.sjgf.exceptions.SJGFException;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL30.*;
+
+/**
+ * A vertex buffer that is written to as a ring. Each map hands out the next
+ * unused range of the buffer without waiting on the GPU; once the ring is
+ * exhausted the storage is orphaned and writing starts again from the front.
+ */
+class GlStreamBuffer implements Disposable {
+
+    private static final int ACCESS = GL_MAP_WRITE_BIT
+            | GL_MAP_UNSYNCHRONIZED_BIT
+            | GL_MAP_INVALIDATE_RANGE_BIT;
+
+    private final int handle;
+
+    private int capacity;
+    private int offset = 0;
+    private int mappedOffset = 0;
+
+    GlStreamBuffer(int capacity) {
+        this.capacity = capacity;
+
+        handle = glGenBuffers();
+        glBindBuffer(GL_ARRAY_BUFFER, handle);
+        glBufferData(GL_ARRAY_BUFFER, capacity, GL_STREAM_DRAW);
+        glBindBuffer(GL_ARRAY_BUFFER, 0);
+    }
+
+    /**
+     * Binds this buffer and maps the next <code>size</code> bytes of it for writing.
+     * The buffer stays bound to <code>GL_ARRAY_BUFFER</code> until {@link #unmap()}.
+     *
+     * @return the address of the mapped range
+     */
+    long map(int size) {
+        glBindBuffer(GL_ARRAY_BUFFER, handle);
+
+        if (size > capacity) {
+            capacity = Integer.highestOneBit(size) << 1;
+            offset = capacity;
+        }
+
+        if (offset + size > capacity) {
+            glBufferData(GL_ARRAY_BUFFER, capacity, GL_STREAM_DRAW);
+            offset = 0;
+        }
+
+        long address = nglMapBufferRange(GL_ARRAY_BUFFER, offset, size, ACCESS);
+        if (address == 0)
+            throw new SJGFException("Failed to map vertex buffer");
+
+        mappedOffset = offset;
+        offset += size;
+        return address;
+    }
+
+    /**
+     * Unmaps the range returned by the last call to {@link #map(int)}.
+     * The buffer is left bound so attribute pointers can be set against it.
+     *
+     * @return the offset, in bytes, of the range that was written
+     */
+    int unmap() {
+        glUnmapBuffer(GL_ARRAY_BUFFER);
+        return mappedOffset;
+    }
+
+    @Override
+    public void dispose() {
+        glDeleteBuffers(handle);
+    }
+}
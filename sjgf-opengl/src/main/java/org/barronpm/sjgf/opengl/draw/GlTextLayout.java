@@ -0,0 +1,301 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.opengl.draw;
+
+import org.barronpm.sjgf.Disposable;
+
+import java.awt.Font;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.lwjgl.system.MemoryUtil.memAlloc;
+import static org.lwjgl.system.MemoryUtil.memFree;
+
+/**
+ * A string laid out once in a font, ready to be drawn repeatedly with
+ * {@link GlGraphics#drawText(GlTextLayout, float, float)}.
+ *
+ * Glyphs are looked up, kerned and packed into vertices when the layout is
+ * first drawn. Later draws at the same position, depth and color copy the
+ * packed vertices into the batch as they are; otherwise only the positions
+ * and color are rewritten. The layout is shaped again if the glyph atlas it
+ * was shaped against has changed. Text needing more glyphs than the atlas
+ * holds at once is drawn glyph by glyph instead.
+ *
+ * Layouts must be disposed once no longer needed.
+ */
+public final class GlTextLayout implements Disposable {
+
+    private static final int QUAD_FLOATS = 8;
+    private static final int MAX_SHAPE_ATTEMPTS = 4;
+
+    private final String text;
+    private final Font font;
+
+    private GlFont shapedFont;
+    private int shapedEvictions;
+    private float width;
+    private float height;
+    private boolean disposed = false;
+
+    private final List<Run> runs = new ArrayList<>();
+
+    GlTextLayout(String text, Font font) {
+        this.text = text;
+        this.font = font;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public Font getFont() {
+        return font;
+    }
+
+    /**
+     * Returns the width of the widest line of the layout, in pixels. The
+     * layout is measured when first drawn; until then the width is 0.
+     *
+     * @return the width of the layout
+     */
+    public float getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the layout's lines, in pixels. The layout is
+     * measured when first drawn; until then the height is 0.
+     *
+     * @return the height of the layout
+     */
+    public float getHeight() {
+        return height;
+    }
+
+    /**
+     * Queues the layout's glyphs into the batch, shaping it first if it has
+     * not been shaped against the given font's current atlas.
+     */
+    void draw(GlFont glFont, GlTextureBatch batch, float x, float y, float z, int color) {
+        if (disposed)
+            throw new IllegalStateException("Text layout has been disposed");
+
+        if (shapedFont != glFont || shapedEvictions != glFont.getEvictions()) {
+            // Shaping can evict a page holding glyphs it already placed
+            int attempts = 0;
+            do {
+                shape(glFont, null, 0, 0, 0, 0);
+            } while (shapedEvictions != glFont.getEvictions() && ++attempts < MAX_SHAPE_ATTEMPTS);
+
+            if (shapedEvictions != glFont.getEvictions()) {
+                shape(glFont, batch, x, y, z, color);
+                return;
+            }
+        }
+
+        for (Run run : runs)
+            run.draw(batch, glFont.distanceField, x, y, z, color);
+    }
+
+    /**
+     * Lays out the text into runs or, if a batch is given, queues each glyph
+     * into it as soon as it is looked up. Evicting a page flushes the batch,
+     * so glyphs queued this way never sample a cleared page. The layout is
+     * left unshaped after queuing glyphs directly.
+     */
+    private void shape(GlFont glFont, GlTextureBatch batch, float x, float y, float z, int color) {
+        int evictions = glFont.getEvictions();
+        runs.forEach(Run::clear);
+
+        float scale = glFont.getScale(font);
+        float lineHeight = glFont.height * scale;
+        float pageSize = glFont.getPageSize();
+
+        float textHeight = glFont.getHeight(text) * scale;
+
+        float penX = 0;
+        float penY = textHeight > lineHeight ? textHeight - lineHeight : 0;
+        int lines = 1;
+        int previous = -1;
+        width = 0;
+
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            i += Character.charCount(codePoint);
+
+            if (codePoint == '\n') {
+                penY -= lineHeight;
+                penX = 0;
+                lines++;
+                previous = -1;
+                continue;
+            }
+
+            if (codePoint == '\r') {
+                continue;
+            }
+
+            if (previous != -1)
+                penX += glFont.getKerning(previous, codePoint) * scale;
+
+            Glyph g = glFont.getGlyph(codePoint);
+            if (g.page != null) {
+                float left = penX + g.left * scale;
+                float bottom = penY + g.bottom * scale;
+                float s1 = g.x / pageSize;
+                float t1 = g.y / pageSize;
+                float s2 = (g.x + g.width) / pageSize;
+                float t2 = (g.y + g.height) / pageSize;
+                if (batch != null) {
+                    batch.addRegion(g.page.texture, color, s1, t1, s2, t2, x + left, y + bottom, z,
+                            g.quadWidth * scale, g.quadHeight * scale, glFont.distanceField);
+                } else {
+                    runFor(g.page.texture).add(left, bottom, g.quadWidth * scale, g.quadHeight * scale,
+                            s1, t1, s2, t2);
+                }
+            }
+            penX += g.advance * scale;
+            width = Math.max(width, penX);
+            previous = codePoint;
+        }
+
+        runs.removeIf(run -> {
+            if (run.count > 0)
+                return false;
+            run.free();
+            return true;
+        });
+
+        height = lineHeight * lines;
+        shapedFont = batch == null ? glFont : null;
+        shapedEvictions = evictions;
+    }
+
+    private Run runFor(GlTexture texture) {
+        for (Run run : runs) {
+            if (run.texture == texture)
+                return run;
+        }
+
+        Run run = new Run(texture);
+        runs.add(run);
+        return run;
+    }
+
+    @Override
+    public void dispose() {
+        runs.forEach(Run::free);
+        runs.clear();
+        disposed = true;
+    }
+
+    /**
+     * The glyphs of a layout that sample one atlas page.
+     */
+    private static final class Run {
+        private final GlTexture texture;
+
+        // x, y, width, height, s1, t1, s2, t2 per quad, relative to the layout's origin
+        private float[] quads = new float[QUAD_FLOATS * 8];
+        private int count = 0;
+
+        private ByteBuffer vertices;
+        private boolean packed = false;
+        private float packedX;
+        private float packedY;
+        private float packedZ;
+        private int packedColor;
+
+        private Run(GlTexture texture) {
+            this.texture = texture;
+        }
+
+        private void add(float x, float y, float width, float height, float s1, float t1, float s2, float t2) {
+            if ((count + 1) * QUAD_FLOATS > quads.length)
+                quads = Arrays.copyOf(quads, quads.length * 2);
+
+            int i = count++ * QUAD_FLOATS;
+            quads[i] = x;
+            quads[i + 1] = y;
+            quads[i + 2] = width;
+            quads[i + 3] = height;
+            quads[i + 4] = s1;
+            quads[i + 5] = t1;
+            quads[i + 6] = s2;
+            quads[i + 7] = t2;
+            packed = false;
+        }
+
+        private void draw(GlTextureBatch batch, boolean distanceField, float x, float y, float z, int color) {
+            if (count == 0)
+                return;
+
+            if (!packed || packedX != x || packedY != y || packedZ != z || packedColor != color)
+                pack(x, y, z, color);
+
+            batch.addPacked(texture, distanceField, vertices, count);
+        }
+
+        private void pack(float x, float y, float z, int color) {
+            int bytes = count * GlTextureBatch.QUAD_BYTES;
+            if (vertices == null || vertices.capacity() < bytes) {
+                free();
+                vertices = memAlloc(bytes);
+            }
+
+            int index = 0;
+            for (int quad = 0; quad < count; quad++) {
+                int i = quad * QUAD_FLOATS;
+                float left = x + quads[i];
+                float bottom = y + quads[i + 1];
+                float right = left + quads[i + 2];
+                float top = bottom + quads[i + 3];
+                float s1 = quads[i + 4];
+                float t1 = quads[i + 5];
+                float s2 = quads[i + 6];
+                float t2 = quads[i + 7];
+
+                // The slot is filled in by the batch
+                index = VertexFormat.putTextureVertex(vertices, index, left, bottom, z, color, s1, t1, 0, 0);
+                index = VertexFormat.putTextureVertex(vertices, index, left, top, z, color, s1, t2, 0, 0);
+                index = VertexFormat.putTextureVertex(vertices, index, right, top, z, color, s2, t2, 0, 0);
+                index = VertexFormat.putTextureVertex(vertices, index, right, bottom, z, color, s2, t1, 0, 0);
+            }
+
+            packed = true;
+            packedX = x;
+            packedY = y;
+            packedZ = z;
+            packedColor = color;
+        }
+
+        private void clear() {
+            count = 0;
+            packed = false;
+        }
+
+        private void free() {
+            if (vertices != null) {
+                memFree(vertices);
+                vertices = null;
+            }
+        }
+    }
+}
@@ -17,31 +17,70 @@
 package org.barronpm.sjgf.opengl.draw;
 
 import org.barronpm.sjgf.draw.Texture;
+import org.barronpm.sjgf.util.Args;
 
 import java.nio.ByteBuffer;
 
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GL12.GL_CLAMP_TO_EDGE;
+import static org.lwjgl.opengl.GL12.GL_TEXTURE_MAX_LEVEL;
+import static org.lwjgl.opengl.GL30.glGenerateMipmap;
 
 public class GlTexture implements Texture {
 
     private int handle;
+    private final int target;
     private final int width;
     private final int height;
+    private long memorySize;
+    private GlSampler sampler = GlSampler.DEFAULT;
+    private int levels = 1;
+    boolean compressed;
+
+    // Guarded by the cache, if the texture belongs to one
+    GlTextureCache cache;
+    String cacheKey;
+    int references;
 
     public GlTexture(int width, int height, boolean hasAlpha, ByteBuffer data) {
-        this.width = width;
-        this.height = height;
+        this(width, height, (long) width * height * (hasAlpha ? 4 : 3));
 
-        handle = glGenTextures();
-        glBindTexture(GL_TEXTURE_2D, handle);
         glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
         glTexImage2D(GL_TEXTURE_2D, 0, hasAlpha ? GL_RGBA : GL_RGB,
                 width, height, 0, hasAlpha ? GL_RGBA : GL_RGB, GL_UNSIGNED_BYTE, data);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+    }
+
+    /**
+     * Creates a texture with no image, leaving it bound so that its levels can be uploaded.
+     */
+    GlTexture(int width, int height, long memorySize) {
+        this(GL_TEXTURE_2D, width, height, memorySize);
+    }
+
+    GlTexture(int target, int width, int height, long memorySize) {
+        this.target = target;
+        this.width = width;
+        this.height = height;
+        this.memorySize = memorySize;
+
+        handle = glGenTextures();
+        glBindTexture(target, handle);
+        glTexParameteri(target, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
+        glTexParameteri(target, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+        glTexParameteri(target, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+        glTexParameteri(target, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+        glTexParameteri(target, GL_TEXTURE_MAX_LEVEL, 0);
+    }
+
+    /**
+     * Wraps a texture object that already exists, leaving its parameters as they are.
+     */
+    GlTexture(int target, int handle, int width, int height, long memorySize) {
+        this.target = target;
+        this.handle = handle;
+        this.width = width;
+        this.height = height;
+        this.memorySize = memorySize;
     }
 
     @Override
@@ -54,12 +93,100 @@ public class GlTexture implements Texture {
         return height;
     }
 
+    /**
+     * Returns an estimate of the video memory used by this texture, in bytes.
+     *
+     * @return the estimated size of this texture
+     */
+    public long getMemorySize() {
+        return memorySize;
+    }
+
+    int getHandle() {
+        return handle;
+    }
+
+    public GlSampler getSampler() {
+        return sampler;
+    }
+
+    /**
+     * Sets the parameters this texture is sampled with. If the sampler filters
+     * between mip levels and this texture has none, they are generated.
+     * Must be called on the GL thread.
+     *
+     * @param sampler the sampler to use
+     */
+    public void setSampler(GlSampler sampler) {
+        Args.notNull(sampler, "sampler");
+        this.sampler = sampler;
+        if (sampler.getFilter().usesMipmaps())
+            generateMipmaps();
+    }
+
+    public int getLevels() {
+        return levels;
+    }
+
+    /**
+     * Generates the full chain of mip levels from the base image, if this
+     * texture doesn't have its levels already. Compressed textures are only
+     * mipmapped if their levels were stored with them.
+     */
+    public void generateMipmaps() {
+        if (levels > 1 || compressed)
+            return;
+
+        int count = 32 - Integer.numberOfLeadingZeros(Math.max(width, height));
+        if (count == 1)
+            return;
+
+        bind();
+        glTexParameteri(target, GL_TEXTURE_MAX_LEVEL, count - 1);
+        glGenerateMipmap(target);
+
+        long previousSize = memorySize;
+        memorySize = memorySize * 4 / 3;
+        levels = count;
+        if (cache != null)
+            cache.resize(this, previousSize);
+    }
+
+    /**
+     * Sets the number of levels uploaded by the caller of the package-private constructor.
+     */
+    void setLevels(int levels) {
+        this.levels = levels;
+        glTexParameteri(target, GL_TEXTURE_MAX_LEVEL, levels - 1);
+    }
+
+    /**
+     * Returns the target this texture is bound to, such as <code>GL_TEXTURE_2D</code>.
+     *
+     * @return the texture target
+     */
+    public int getTarget() {
+        return target;
+    }
+
     public void bind() {
-        glBindTexture(GL_TEXTURE_2D, handle);
+        glBindTexture(target, handle);
     }
 
+    /**
+     * Releases this texture. A texture shared through a {@link GlTextureCache} is
+     * only released once every user has disposed it, and is then kept by the
+     * cache until it needs the memory.
+     */
     @Override
     public void dispose() {
+        if (cache != null)
+            cache.release(this);
+        else
+            delete();
+    }
+
+    void delete() {
         glDeleteTextures(handle);
     }
 }
@@ -0,0 +1,246 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.opengl.draw;
+
+import org.barronpm.sjgf.exceptions.SJGFException;
+import org.barronpm.sjgf.util.Args;
+import org.lwjgl.system.MemoryStack;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL12.*;
+import static org.lwjgl.opengl.GL30.GL_MAX_ARRAY_TEXTURE_LAYERS;
+import static org.lwjgl.opengl.GL30.GL_TEXTURE_2D_ARRAY;
+import static org.lwjgl.opengl.GL30.glGenerateMipmap;
+import static org.lwjgl.stb.STBImage.*;
+
+/**
+ * A texture made of layers of the same size, such as the tiles of a tileset or
+ * the frames of an animation. Every layer of an array is drawn from the same
+ * texture unit, so switching between them does not break a batch.
+ *
+ * Layers are drawn through the {@link GlTextureLayer} returned by
+ * {@link #getLayer(int)}; drawing the array itself draws its first layer.
+ */
+public class GlTextureArray extends GlTexture {
+
+    /**
+     * The largest number of layers the texture batch can address.
+     */
+    public static final int MAX_LAYERS = 0xFFFF;
+
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private final List<GlTextureLayer> layers;
+
+    /**
+     * Creates an array of transparent layers. Must be called on the GL thread.
+     *
+     * @param width the width of each layer
+     * @param height the height of each layer
+     * @param layerCount the number of layers
+     * @throws IllegalArgumentException if a size is not positive, or there are
+     *                                  more layers than the driver supports
+     */
+    public GlTextureArray(int width, int height, int layerCount) {
+        super(GL_TEXTURE_2D_ARRAY, checkSize(width, height), height,
+                (long) width * height * BYTES_PER_PIXEL * checkLayers(layerCount));
+
+        glTexImage3D(GL_TEXTURE_2D_ARRAY, 0, GL_RGBA8, width, height, layerCount, 0,
+                GL_RGBA, GL_UNSIGNED_BYTE, (ByteBuffer) null);
+
+        List<GlTextureLayer> layers = new ArrayList<>(layerCount);
+        for (int i = 0; i < layerCount; i++)
+            layers.add(new GlTextureLayer(this, i));
+        this.layers = Collections.unmodifiableList(layers);
+    }
+
+    /**
+     * Loads each image into a layer of a new array, in order. Every image must
+     * have the same size. Must be called on the GL thread.
+     *
+     * @param files the images to load
+     * @return the texture array
+     * @throws SJGFException if an image can't be loaded or its size differs from the first
+     */
+    public static GlTextureArray load(List<File> files) {
+        Args.notNull(files, "files");
+        if (files.isEmpty())
+            throw new IllegalArgumentException("At least one image is required");
+
+        GlTextureArray array = null;
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                File file = files.get(i);
+                Args.notNull(file, "file");
+                Image image = Image.load(file);
+                try {
+                    if (array == null)
+                        array = new GlTextureArray(image.width, image.height, files.size());
+                    else if (image.width != array.getWidth() || image.height != array.getHeight())
+                        throw new SJGFException("Size of " + file + " differs from the other layers");
+
+                    array.setLayer(i, image.pixels);
+                } finally {
+                    image.free();
+                }
+            }
+            return array;
+        } catch (RuntimeException e) {
+            if (array != null)
+                array.dispose();
+            throw e;
+        }
+    }
+
+    /**
+     * Splits an image, such as a tileset or an animation strip, into tiles and
+     * loads each into a layer of a new array. Tiles are numbered left to right,
+     * then top to bottom; partial tiles at the right and bottom edges are ignored.
+     * Must be called on the GL thread.
+     *
+     * @param file the image to load
+     * @param tileWidth the width of each tile
+     * @param tileHeight the height of each tile
+     * @return the texture array
+     * @throws SJGFException if the image can't be loaded or is smaller than a tile
+     */
+    public static GlTextureArray loadGrid(File file, int tileWidth, int tileHeight) {
+        Args.notNull(file, "file");
+        checkSize(tileWidth, tileHeight);
+
+        Image image = Image.load(file);
+        try {
+            int columns = image.width / tileWidth;
+            int rows = image.height / tileHeight;
+            if (columns == 0 || rows == 0)
+                throw new SJGFException(file + " is smaller than a single tile");
+
+            GlTextureArray array = new GlTextureArray(tileWidth, tileHeight, columns * rows);
+            glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+            glPixelStorei(GL_UNPACK_ROW_LENGTH, image.width);
+            try {
+                for (int row = 0; row < rows; row++) {
+                    for (int column = 0; column < columns; column++) {
+                        // Rows are stored bottom up, so the top row of tiles comes last
+                        glPixelStorei(GL_UNPACK_SKIP_PIXELS, column * tileWidth);
+                        glPixelStorei(GL_UNPACK_SKIP_ROWS, image.height - (row + 1) * tileHeight);
+                        glTexSubImage3D(GL_TEXTURE_2D_ARRAY, 0, 0, 0, row * columns + column,
+                                tileWidth, tileHeight, 1, GL_RGBA, GL_UNSIGNED_BYTE, image.pixels);
+                    }
+                }
+            } finally {
+                glPixelStorei(GL_UNPACK_ROW_LENGTH, 0);
+                glPixelStorei(GL_UNPACK_SKIP_PIXELS, 0);
+                glPixelStorei(GL_UNPACK_SKIP_ROWS, 0);
+            }
+            return array;
+        } finally {
+            image.free();
+        }
+    }
+
+    /**
+     * Replaces the contents of a layer. If the array has mipmaps, they are
+     * regenerated. Must be called on the GL thread.
+     *
+     * @param layer the index of the layer
+     * @param pixels the image as RGBA8 pixels, with rows from bottom to top
+     * @throws IndexOutOfBoundsException if there is no such layer
+     * @throws IllegalArgumentException if pixels is too small for a layer
+     */
+    public void setLayer(int layer, ByteBuffer pixels) {
+        Args.notNull(pixels, "pixels");
+        if (layer < 0 || layer >= layers.size())
+            throw new IndexOutOfBoundsException("Layer " + layer + " out of range");
+        if (pixels.remaining() < getWidth() * getHeight() * BYTES_PER_PIXEL)
+            throw new IllegalArgumentException("Pixel buffer is too small");
+
+        bind();
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+        glTexSubImage3D(GL_TEXTURE_2D_ARRAY, 0, 0, 0, layer, getWidth(), getHeight(), 1,
+                GL_RGBA, GL_UNSIGNED_BYTE, pixels);
+        if (getLevels() > 1)
+            glGenerateMipmap(GL_TEXTURE_2D_ARRAY);
+    }
+
+    public GlTextureLayer getLayer(int layer) {
+        return layers.get(layer);
+    }
+
+    public List<GlTextureLayer> getLayers() {
+        return layers;
+    }
+
+    public int getLayerCount() {
+        return layers.size();
+    }
+
+    private static int checkSize(int width, int height) {
+        if (width < 1 || height < 1)
+            throw new IllegalArgumentException("Size must be positive");
+        return width;
+    }
+
+    private static int checkLayers(int layerCount) {
+        if (layerCount < 1)
+            throw new IllegalArgumentException("Layer count must be positive");
+        if (layerCount > Math.min(MAX_LAYERS, glGetInteger(GL_MAX_ARRAY_TEXTURE_LAYERS)))
+            throw new IllegalArgumentException("Too many layers: " + layerCount);
+        return layerCount;
+    }
+
+    private static final class Image {
+        private final int width;
+        private final int height;
+        private final ByteBuffer pixels;
+
+        private Image(int width, int height, ByteBuffer pixels) {
+            this.width = width;
+            this.height = height;
+            this.pixels = pixels;
+        }
+
+        private static Image load(File file) {
+            MemoryStack stack = MemoryStack.stackPush();
+            try {
+                IntBuffer width = stack.mallocInt(1);
+                IntBuffer height = stack.mallocInt(1);
+                IntBuffer channels = stack.mallocInt(1);
+
+                stbi_set_flip_vertically_on_load(true);
+                ByteBuffer pixels = stbi_load(file.getPath(), width, height, channels, BYTES_PER_PIXEL);
+                if (pixels == null)
+                    throw new SJGFException("Failed to load " + file + ": " + stbi_failure_reason());
+
+                return new Image(width.get(0), height.get(0), pixels);
+            } finally {
+                stack.pop();
+            }
+        }
+
+        private void free() {
+            stbi_image_free(pixels);
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.opengl.draw;
+
+import org.barronpm.sjgf.Disposable;
+import org.barronpm.sjgf.draw.TextureRegion;
+import org.barronpm.sjgf.exceptions.SJGFException;
+import org.barronpm.sjgf.util.Args;
+import org.lwjgl.system.MemoryStack;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL30.glGenerateMipmap;
+import static org.lwjgl.stb.STBImage.*;
+import static org.lwjgl.system.MemoryUtil.memAlloc;
+import static org.lwjgl.system.MemoryUtil.memCalloc;
+import static org.lwjgl.system.MemoryUtil.memFree;
+
+/**
+ * Packs many images into a few large textures, so that they can be drawn
+ * together in a single draw call.
+ *
+ * Images are placed on pages with a {@link SkylinePacker}, and a new page is
+ * started whenever an image fits on none of the existing ones. Each image is
+ * surrounded by a border of padding; with extrusion enabled, the border is
+ * filled with the image's edge pixels so that filtering at the edges does not
+ * bleed in neighbouring images.
+ *
+ * The regions returned by the atlas can be drawn like any other texture.
+ * They remain valid until the atlas is disposed.
+ */
+public final class GlTextureAtlas implements Disposable {
+
+    public static final int DEFAULT_PAGE_SIZE = 2048;
+    public static final int DEFAULT_PADDING = 1;
+
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private final int pageSize;
+    private final int padding;
+    private final boolean extrude;
+
+    private final List<GlTexture> pages = new ArrayList<>();
+    private final List<SkylinePacker> packers = new ArrayList<>();
+
+    public GlTextureAtlas() {
+        this(DEFAULT_PAGE_SIZE, DEFAULT_PADDING, true);
+    }
+
+    /**
+     * Creates an empty atlas.
+     *
+     * @param pageSize the width and height of each page, in pixels
+     * @param padding the size of the border around each image, in pixels
+     * @param extrude whether the border repeats the image's edge pixels rather than being transparent
+     * @throws IllegalArgumentException if pageSize is not positive or padding is negative
+     */
+    public GlTextureAtlas(int pageSize, int padding, boolean extrude) {
+        if (pageSize < 1)
+            throw new IllegalArgumentException("Page size must be positive");
+        if (padding < 0)
+            throw new IllegalArgumentException("Padding must not be negative");
+
+        this.pageSize = pageSize;
+        this.padding = padding;
+        this.extrude = extrude;
+    }
+
+    /**
+     * Loads an image and adds it to the atlas.
+     *
+     * @param file the image to add
+     * @return the region of the atlas holding the image
+     * @throws SJGFException if the image cannot be loaded
+     */
+    public TextureRegion add(File file) {
+        Args.notNull(file, "file");
+
+        MemoryStack stack = MemoryStack.stackPush();
+        try {
+            IntBuffer width = stack.mallocInt(1);
+            IntBuffer height = stack.mallocInt(1);
+            IntBuffer channels = stack.mallocInt(1);
+
+            stbi_set_flip_vertically_on_load(true);
+            ByteBuffer pixels = stbi_load(file.getPath(), width, height, channels, BYTES_PER_PIXEL);
+            if (pixels == null)
+                throw new SJGFException("Failed to load " + file + ": " + stbi_failure_reason());
+
+            try {
+                return add(width.get(0), height.get(0), pixels);
+            } finally {
+                stbi_image_free(pixels);
+            }
+        } finally {
+            stack.pop();
+        }
+    }
+
+    /**
+     * Adds an image to the atlas. Must be called on the GL thread.
+     *
+     * @param width the width of the image
+     * @param height the height of the image
+     * @param pixels the image as RGBA8 pixels, with rows from bottom to top
+     * @return the region of the atlas holding the image
+     * @throws IllegalArgumentException if the image, with its padding, is larger than a page
+     */
+    public TextureRegion add(int width, int height, ByteBuffer pixels) {
+        Args.notNull(pixels, "pixels");
+        if (width < 1 || height < 1)
+            throw new IllegalArgumentException("Image must not be empty");
+        if (pixels.remaining() < width * height * BYTES_PER_PIXEL)
+            throw new IllegalArgumentException("Not enough pixels for a " + width + "x" + height + " image");
+
+        int paddedWidth = width + padding * 2;
+        int paddedHeight = height + padding * 2;
+        if (paddedWidth > pageSize || paddedHeight > pageSize)
+            throw new IllegalArgumentException("Image is larger than an atlas page");
+
+        int page = 0;
+        long position = -1;
+        for (; page < packers.size(); page++) {
+            position = packers.get(page).pack(paddedWidth, paddedHeight);
+            if (position >= 0)
+                break;
+        }
+
+        if (position < 0) {
+            addPage();
+            position = packers.get(page).pack(paddedWidth, paddedHeight);
+        }
+
+        int x = (int) (position >>> 32);
+        int y = (int) position;
+
+        GlTexture texture = pages.get(page);
+        texture.bind();
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+        if (extrude && padding > 0) {
+            ByteBuffer extruded = extrude(width, height, pixels);
+            glTexSubImage2D(GL_TEXTURE_2D, 0, x, y, paddedWidth, paddedHeight,
+                    GL_RGBA, GL_UNSIGNED_BYTE, extruded);
+            memFree(extruded);
+        } else {
+            glTexSubImage2D(GL_TEXTURE_2D, 0, x + padding, y + padding, width, height,
+                    GL_RGBA, GL_UNSIGNED_BYTE, pixels);
+        }
+        if (texture.getLevels() > 1)
+            glGenerateMipmap(GL_TEXTURE_2D);
+
+        return new TextureRegion(texture, x + padding, y + padding, width, height);
+    }
+
+    /**
+     * Returns the textures that make up this atlas.
+     *
+     * @return an unmodifiable list of this atlas's pages
+     */
+    public List<GlTexture> getPages() {
+        return Collections.unmodifiableList(pages);
+    }
+
+    @Override
+    public void dispose() {
+        pages.forEach(GlTexture::dispose);
+        pages.clear();
+        packers.clear();
+    }
+
+    private void addPage() {
+        ByteBuffer clear = memCalloc(pageSize * pageSize * BYTES_PER_PIXEL);
+        pages.add(new GlTexture(pageSize, pageSize, true, clear));
+        packers.add(new SkylinePacker(pageSize, pageSize));
+        memFree(clear);
+    }
+
+    private ByteBuffer extrude(int width, int height, ByteBuffer pixels) {
+        int paddedWidth = width + padding * 2;
+        ByteBuffer extruded = memAlloc(paddedWidth * (height + padding * 2) * BYTES_PER_PIXEL);
+        writePadded(pixels, width, height, padding, true, extruded, paddedWidth, 0, 0);
+        return extruded;
+    }
+
+    /**
+     * Copies an RGBA image into a larger one, surrounded by a border of padding.
+     * With extrusion, the border repeats the image's edge pixels; otherwise it is
+     * left untouched.
+     *
+     * @param destinationWidth the width of the destination image, in pixels
+     * @param x the x coordinate in the destination of the border's bottom-left corner
+     * @param y the y coordinate in the destination of the border's bottom-left corner
+     */
+    static void writePadded(ByteBuffer pixels, int width, int height, int padding, boolean extrude,
+                            ByteBuffer destination, int destinationWidth, int x, int y) {
+        int border = extrude ? padding : 0;
+        int base = pixels.position();
+
+        for (int row = padding - border; row < height + padding + border; row++) {
+            int sourceRow = Math.min(Math.max(row - padding, 0), height - 1);
+            int target = ((y + row) * destinationWidth + x) * BYTES_PER_PIXEL;
+
+            for (int column = padding - border; column < width + padding + border; column++) {
+                int sourceColumn = Math.min(Math.max(column - padding, 0), width - 1);
+                int pixel = pixels.getInt(base + (sourceRow * width + sourceColumn) * BYTES_PER_PIXEL);
+                destination.putInt(target + column * BYTES_PER_PIXEL, pixel);
+            }
+        }
+    }
+}
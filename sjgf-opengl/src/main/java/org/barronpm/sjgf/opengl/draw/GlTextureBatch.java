@@ -16,136 +16,398 @@
 
 package org.barronpm.sjgf.opengl.draw;
 
-import org.barronpm.sjgf.draw.Color;
+import org.barronpm.sjgf.draw.Camera;
 import org.barronpm.sjgf.draw.Texture;
-import org.barronpm.sjgf.math.Vector3;
+import org.barronpm.sjgf.draw.TextureRegion;
+import org.barronpm.sjgf.opengl.util.FileUtils;
 import org.lwjgl.system.MemoryUtil;
 
-import java.nio.FloatBuffer;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import static org.lwjgl.opengl.GL11.*;
-import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL13.GL_TEXTURE0;
+import static org.lwjgl.opengl.GL13.glActiveTexture;
 import static org.lwjgl.opengl.GL20.*;
 import static org.lwjgl.opengl.GL30.glBindVertexArray;
-import static org.lwjgl.opengl.GL30.glGenVertexArrays;
 
-class GlTextureBatch {
+class GlTextureBatch extends GlBatch {
 
-    private static final int MAX_TEXTURES = 30;
+    private static final int MAX_SLOTS = 32;
+    /**
+     * The number of texture units reserved for texture arrays, which can't share
+     * units with 2D textures since their sampler type differs.
+     */
+    static final int ARRAY_SLOTS = 4;
+    static final int QUAD_BYTES = GlQuadIndexBuffer.VERTICES_PER_QUAD * VertexFormat.TEXTURE_STRIDE;
 
-    private final GlShaderProgram program;
+    private final GlQuadIndexBuffer indices;
+    private final GlSamplerCache samplers;
+    private final GlTexture[] slots;
+    private final GlTextureArray[] arraySlots = new GlTextureArray[ARRAY_SLOTS];
 
-    private final int vao;
-    private final int vertexVbo;
-    private final int uvVbo;
-    private final int colorVbo;
+    private int numSlots = 0;
+    private int lastSlot = 0;
+    private int numArraySlots = 0;
 
-    private final float[] vertexArray;
-    private final float[] coordinateArray;
-    private final float[] colorArray;
-    private final ArrayList<Texture> textures;
+    // When sorting, 2D textures are recorded per quad and given slots at flush time
+    private boolean sortByTexture = false;
+    private GlTexture[] quadTextures = new GlTexture[0];
+    private GlTexture[] sortedTextures = new GlTexture[0];
+    private long[] sortKeys = new long[0];
+    private ByteBuffer sorted;
+    private int[] groupEnds = new int[0];
+    private int groupCount = 0;
 
-    private int numTextures = 0;
+    GlTextureBatch(GlShaderProgram program, Camera camera, GlQuadIndexBuffer indices, GlSamplerCache samplers,
+                   int slotCount, int capacity, long maxBytes) {
+        super(program, camera, QUAD_BYTES, capacity, maxBytes);
+        this.indices = indices;
+        this.samplers = samplers;
+        this.slots = new GlTexture[slotCount];
 
-    GlTextureBatch(GlShaderProgram program) {
-        this.program = program;
-        this.vertexArray = new float[MAX_TEXTURES * 6 * 3];
-        this.coordinateArray = new float[MAX_TEXTURES * 6 * 2];
-        this.colorArray = new float[MAX_TEXTURES * 6 * 4];
-        this.textures = new ArrayList<>(MAX_TEXTURES);
+        int[] units = new int[slotCount];
+        for (int i = 0; i < slotCount; i++)
+            units[i] = i;
+        int[] arrayUnits = new int[ARRAY_SLOTS];
+        for (int i = 0; i < ARRAY_SLOTS; i++)
+            arrayUnits[i] = slotCount + i;
+        glUseProgram(program.getHandle());
+        glUniform1iv(glGetUniformLocation(program.getHandle(), "textures"), units);
+        glUniform1iv(glGetUniformLocation(program.getHandle(), "textureArrays"), arrayUnits);
 
-        vao = glGenVertexArrays();
         glBindVertexArray(vao);
+        glEnableVertexAttribArray(0);
+        glEnableVertexAttribArray(1);
+        glEnableVertexAttribArray(2);
+        glEnableVertexAttribArray(3);
+        glEnableVertexAttribArray(4);
+        indices.ensureCapacity(capacity);
+        indices.bind();
+        glBindVertexArray(0);
+    }
+
+    /**
+     * Returns the number of 2D textures a single draw call can sample from,
+     * limited by the number of texture image units the driver exposes, less
+     * those reserved for texture arrays.
+     */
+    static int getSlotCount() {
+        return Math.min(glGetInteger(GL_MAX_TEXTURE_IMAGE_UNITS), MAX_SLOTS) - ARRAY_SLOTS;
+    }
 
-        vertexVbo = glGenBuffers();
-        glBindBuffer(GL_ARRAY_BUFFER, vertexVbo);
-        glVertexAttribPointer(0, 3, GL_FLOAT, false, 0, 0);
+    /**
+     * Creates the fragment shader source for a batch with the provided number of slots.
+     * GLSL 3.30 only allows sampler arrays to be indexed by constants, so the lookup
+     * is generated as a chain of branches. Slots past the 2D textures refer to texture arrays.
+     */
+    static String createFragmentSource(int slotCount) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < slotCount; i++) {
+            builder.append("    if (slot == ").append(i).append("u) return textureGrad(textures[")
+                    .append(i).append("], coord, dx, dy);\n");
+        }
+        for (int i = 0; i < ARRAY_SLOTS; i++) {
+            builder.append("    if (slot == ").append(slotCount + i).append("u) return textureGrad(textureArrays[")
+                    .append(i).append("], vec3(coord, float(layer)), dx, dy);\n");
+        }
+
+        return FileUtils.getResourceContents("/shaders/texture.frag")
+                .replace("MAX_TEXTURE_ARRAYS", String.valueOf(ARRAY_SLOTS))
+                .replace("MAX_TEXTURES", String.valueOf(slotCount))
+                .replace("    // SAMPLE_TEXTURES\n", builder.toString());
+    }
+
+    boolean isSortingByTexture() {
+        return sortByTexture;
+    }
+
+    /**
+     * Sets whether quads are reordered by texture before they are drawn.
+     * Sorting lets a flush hold more distinct textures than there are slots,
+     * drawing them in one call per full set of slots, but changes the order in
+     * which overlapping translucent quads are blended.
+     */
+    void setSortByTexture(boolean sortByTexture) {
+        if (sortByTexture == this.sortByTexture)
+            return;
+
+        flush();
+        this.sortByTexture = sortByTexture;
+        if (sortByTexture) {
+            quadTextures = new GlTexture[getCapacity()];
+            sortedTextures = new GlTexture[getCapacity()];
+            sortKeys = new long[getCapacity()];
+            groupEnds = new int[getCapacity()];
+            sorted = MemoryUtil.memAlloc(getCapacity() * QUAD_BYTES);
+        } else {
+            quadTextures = new GlTexture[0];
+            sortedTextures = new GlTexture[0];
+            sortKeys = new long[0];
+            groupEnds = new int[0];
+            MemoryUtil.memFree(sorted);
+            sorted = null;
+        }
+    }
 
-        uvVbo = glGenBuffers();
-        glBindBuffer(GL_ARRAY_BUFFER, uvVbo);
-        glVertexAttribPointer(1, 2, GL_FLOAT, false, 0, 0);
+    void add(Texture texture, int color, float x, float y, float z, float width, float height) {
+        addRegion(texture, color, 0, 0, 1, 1, x, y, z, width, height);
+    }
 
-        colorVbo = glGenBuffers();
-        glBindBuffer(GL_ARRAY_BUFFER, colorVbo);
-        glVertexAttribPointer(2, 4, GL_FLOAT, false, 0, 0);
+    void addRegion(Texture texture, int color, float u1, float v1, float u2, float v2,
+                   float x, float y, float z, float width, float height) {
+        addRegion(texture, color, u1, v1, u2, v2, x, y, z, width, height, false);
     }
 
-    void add(Texture texture, Color color, Vector3... vertices) {
-        addRegion(texture, color, 0, 0, 1, 1, vertices);
+    /**
+     * Adds a region of a texture. A distance field texture stores the distance
+     * to the edge of a shape in alpha, and is drawn with the edge antialiased.
+     */
+    void addRegion(Texture texture, int color, float u1, float v1, float u2, float v2,
+                   float x, float y, float z, float width, float height, boolean distanceField) {
+        checkCamera();
+        if (texture instanceof TextureRegion) {
+            TextureRegion region = (TextureRegion) texture;
+            float du = region.getU2() - region.getU1();
+            float dv = region.getV2() - region.getV1();
+            u1 = region.getU1() + u1 * du;
+            v1 = region.getV1() + v1 * dv;
+            u2 = region.getU1() + u2 * du;
+            v2 = region.getV1() + v2 * dv;
+            texture = region.getTexture();
+        }
+
+        int slot;
+        int layer = 0;
+        if (texture instanceof GlTextureLayer) {
+            GlTextureLayer textureLayer = (GlTextureLayer) texture;
+            slot = arraySlotOf(textureLayer.getArray());
+            layer = textureLayer.getIndex();
+        } else if (texture instanceof GlTextureArray) {
+            slot = arraySlotOf((GlTextureArray) texture);
+        } else if (sortByTexture) {
+            quadTextures[count] = (GlTexture) texture;
+            slot = 0;
+        } else {
+            slot = slotOf((GlTexture) texture);
+        }
+        if (distanceField)
+            slot |= VertexFormat.DISTANCE_FIELD;
+
+        int index = position();
+        index = VertexFormat.putTextureVertex(vertices, index, x, y, z, color, u1, v1, slot, layer);
+        index = VertexFormat.putTextureVertex(vertices, index, x, y + height, z, color, u1, v2, slot, layer);
+        index = VertexFormat.putTextureVertex(vertices, index, x + width, y + height, z, color, u2, v2, slot, layer);
+        VertexFormat.putTextureVertex(vertices, index, x + width, y, z, color, u2, v1, slot, layer);
+
+        next();
     }
 
-    void addRegion(Texture texture, Color color, float x1, float y1, float x2, float y2, Vector3... vertices) {
-        textures.add(texture);
+    /**
+     * Queues quads already packed in the texture vertex format, all sampling
+     * the given texture. Their slot is rewritten in place whenever the texture
+     * lands in a different slot than they were packed with.
+     */
+    void addPacked(GlTexture texture, boolean distanceField, ByteBuffer quads, int quadCount) {
+        checkCamera();
+        int done = 0;
+        while (done < quadCount) {
+            int slot = sortByTexture ? 0 : slotOf(texture);
+            if (distanceField)
+                slot |= VertexFormat.DISTANCE_FIELD;
 
-        for (int i = 0; i < 6; i++) {
-            vertexArray[numTextures * 6 * 3 + i * 3] = vertices[i].getX();
-            vertexArray[numTextures * 6 * 3 + i * 3 + 1] = vertices[i].getY();
-            vertexArray[numTextures * 6 * 3 + i * 3 + 2] = vertices[i].getZ();
+            int first = done * QUAD_BYTES;
+            if (VertexFormat.getTextureSlot(quads, first) != slot) {
+                for (int i = first; i < quadCount * QUAD_BYTES; i += VertexFormat.TEXTURE_STRIDE)
+                    VertexFormat.putTextureSlot(quads, i, slot);
+            }
 
-            colorArray[numTextures * 6 * 4 + i * 4] = color.getRed();
-            colorArray[numTextures * 6 * 4 + i * 4 + 1] = color.getGreen();
-            colorArray[numTextures * 6 * 4 + i * 4 + 2] = color.getBlue();
-            colorArray[numTextures * 6 * 4 + i * 4 + 3] = color.getAlpha();
+            // Adds what fits, so that the slot is resolved again after a flush
+            int added = Math.min(quadCount - done, getCapacity() - count);
+            if (sortByTexture)
+                Arrays.fill(quadTextures, count, count + added, texture);
+            addAll(quads, done, added);
+            done += added;
         }
+    }
 
-        System.arraycopy(new float[]{ x1, y1, x1, y2, x2, y1, x2, y1, x2, y2, x1, y2 },
-                0, coordinateArray, numTextures * 6 * 2, 12);
+    private int slotOf(GlTexture texture) {
+        if (slots[lastSlot] == texture)
+            return lastSlot;
 
-        numTextures++;
-        if (numTextures == MAX_TEXTURES)
+        for (int i = 0; i < numSlots; i++) {
+            if (slots[i] == texture)
+                return lastSlot = i;
+        }
+
+        if (numSlots == slots.length)
+            flush();
+
+        slots[numSlots] = texture;
+        return lastSlot = numSlots++;
+    }
+
+    private int arraySlotOf(GlTextureArray array) {
+        for (int i = 0; i < numArraySlots; i++) {
+            if (arraySlots[i] == array)
+                return slots.length + i;
+        }
+
+        if (numArraySlots == arraySlots.length)
             flush();
+
+        arraySlots[numArraySlots] = array;
+        return slots.length + numArraySlots++;
     }
 
+    @Override
     void flush() {
-        FloatBuffer vertices = MemoryUtil.memAllocFloat(numTextures * 6 * 3);
-        FloatBuffer coords = MemoryUtil.memAllocFloat(numTextures * 6 * 2);
-        FloatBuffer colors = MemoryUtil.memAllocFloat(numTextures * 6 * 4);
-
-        float[] tmp = new float[numTextures * 6 * 3];
-        System.arraycopy(vertexArray, 0, tmp, 0, numTextures * 6 * 3);
-        vertices.put(tmp);
-        tmp = new float[numTextures * 6 * 2];
-        System.arraycopy(coordinateArray, 0, tmp, 0, numTextures * 6 * 2);
-        coords.put(tmp);
-        tmp = new float[numTextures * 6 * 4];
-        System.arraycopy(colorArray, 0, tmp, 0, numTextures * 6 * 4);
-        colors.put(tmp);
-
-        vertices.flip();
-        coords.flip();
-        colors.flip();
+        if (sortByTexture && count > 0)
+            sortQuads();
+        super.flush();
+    }
 
-        glUseProgram(program.getHandle());
-        glBindBuffer(GL_ARRAY_BUFFER, vertexVbo);
-        glBufferData(GL_ARRAY_BUFFER, vertices, GL_STATIC_DRAW);
-        glBindBuffer(GL_ARRAY_BUFFER, uvVbo);
-        glBufferData(GL_ARRAY_BUFFER, coords, GL_STATIC_DRAW);
-        glBindBuffer(GL_ARRAY_BUFFER, colorVbo);
-        glBufferData(GL_ARRAY_BUFFER, colors, GL_STATIC_DRAW);
-        glBindBuffer(GL_ARRAY_BUFFER, 0);
-
-        MemoryUtil.memFree(vertices);
-        MemoryUtil.memFree(coords);
-        MemoryUtil.memFree(colors);
+    /**
+     * Reorders the queued quads by texture, then splits them into groups of
+     * at most one texture per slot and writes each quad's slot within its group.
+     * Quads of texture arrays keep their slots and go first.
+     */
+    private void sortQuads() {
+        for (int i = 0; i < count; i++) {
+            GlTexture texture = quadTextures[i];
+            sortKeys[i] = (texture == null ? 0 : (long) texture.getHandle() << 32) | i;
+        }
+        Arrays.sort(sortKeys, 0, count);
 
-        glBindVertexArray(vao);
-        glEnableVertexAttribArray(0);
-        glEnableVertexAttribArray(1);
-        glEnableVertexAttribArray(2);
+        long source = MemoryUtil.memAddress(vertices);
+        long target = MemoryUtil.memAddress(sorted);
+        for (int i = 0; i < count; i++) {
+            int quad = (int) sortKeys[i];
+            MemoryUtil.memCopy(source + (long) quad * QUAD_BYTES, target + (long) i * QUAD_BYTES, QUAD_BYTES);
+            sortedTextures[i] = quadTextures[quad];
+        }
+
+        ByteBuffer swapVertices = vertices;
+        vertices = sorted;
+        sorted = swapVertices;
+        GlTexture[] swapTextures = quadTextures;
+        quadTextures = sortedTextures;
+        sortedTextures = swapTextures;
 
-        for (int i = 0; i < textures.size(); i++) {
-            ((GlTexture) textures.get(i)).bind();
-            glUniform1i(glGetUniformLocation(program.getHandle(), "tex"), 0);
-            glDrawArrays(GL_TRIANGLES, 6 * i, 6);
+        groupCount = 0;
+        int slot = -1;
+        GlTexture last = null;
+        for (int i = 0; i < count; i++) {
+            GlTexture texture = quadTextures[i];
+            if (texture == null)
+                continue;
+
+            if (texture != last) {
+                if (++slot == slots.length) {
+                    groupEnds[groupCount++] = i;
+                    slot = 0;
+                }
+                last = texture;
+            }
+
+            int index = i * QUAD_BYTES;
+            int flags = VertexFormat.getTextureSlot(vertices, index) & VertexFormat.DISTANCE_FIELD;
+            for (int v = 0; v < GlQuadIndexBuffer.VERTICES_PER_QUAD; v++)
+                VertexFormat.putTextureSlot(vertices, index + v * VertexFormat.TEXTURE_STRIDE, slot | flags);
         }
+        groupEnds[groupCount++] = count;
+    }
 
-        glDisableVertexAttribArray(0);
-        glDisableVertexAttribArray(1);
-        glDisableVertexAttribArray(2);
-        glBindVertexArray(0);
+    @Override
+    void pointAttributes(int offset) {
+        VertexFormat.pointTextureAttributes(offset);
+    }
+
+    @Override
+    void draw(int count) {
+        if (sortByTexture) {
+            drawGroups();
+            return;
+        }
+
+        for (int i = 0; i < numSlots; i++) {
+            glActiveTexture(GL_TEXTURE0 + i);
+            slots[i].bind();
+            samplers.bind(i, slots[i].getSampler());
+        }
+        bindArraySlots();
+        glActiveTexture(GL_TEXTURE0);
+
+        glDrawElements(GL_TRIANGLES, count * GlQuadIndexBuffer.INDICES_PER_QUAD,
+                GlQuadIndexBuffer.TYPE, 0);
+
+        Arrays.fill(slots, 0, numSlots, null);
+        Arrays.fill(arraySlots, 0, numArraySlots, null);
+        numSlots = 0;
+        lastSlot = 0;
+        numArraySlots = 0;
+    }
+
+    private void bindArraySlots() {
+        for (int i = 0; i < numArraySlots; i++) {
+            glActiveTexture(GL_TEXTURE0 + slots.length + i);
+            arraySlots[i].bind();
+            samplers.bind(slots.length + i, arraySlots[i].getSampler());
+        }
+    }
+
+    /**
+     * Draws the groups made by {@link #sortQuads()}, binding each group's textures
+     * to consecutive slots in the order its quads were sorted.
+     */
+    private void drawGroups() {
+        bindArraySlots();
+
+        int start = 0;
+        for (int group = 0; group < groupCount; group++) {
+            int end = groupEnds[group];
+            int slot = 0;
+            GlTexture last = null;
+            for (int i = start; i < end; i++) {
+                GlTexture texture = quadTextures[i];
+                if (texture != null && texture != last) {
+                    glActiveTexture(GL_TEXTURE0 + slot);
+                    texture.bind();
+                    samplers.bind(slot++, texture.getSampler());
+                    last = texture;
+                }
+            }
+            glActiveTexture(GL_TEXTURE0);
+
+            glDrawElements(GL_TRIANGLES, (end - start) * GlQuadIndexBuffer.INDICES_PER_QUAD,
+                    GlQuadIndexBuffer.TYPE, GlQuadIndexBuffer.offset(start));
+            start = end;
+        }
+
+        Arrays.fill(quadTextures, 0, count, null);
+        Arrays.fill(sortedTextures, 0, count, null);
+        Arrays.fill(arraySlots, 0, numArraySlots, null);
+        numArraySlots = 0;
+        groupCount = 0;
+    }
+
+    @Override
+    void setCapacity(int capacity) {
+        super.setCapacity(capacity);
+        indices.ensureCapacity(capacity);
+        if (sortByTexture) {
+            quadTextures = new GlTexture[capacity];
+            sortedTextures = new GlTexture[capacity];
+            sortKeys = new long[capacity];
+            groupEnds = new int[capacity];
+            sorted = MemoryUtil.memRealloc(sorted, capacity * QUAD_BYTES);
+        }
+    }
 
-        numTextures = 0;
-        textures.clear();
+    @Override
+    public void dispose() {
+        super.dispose();
+        if (sorted != null)
+            MemoryUtil.memFree(sorted);
     }
 }
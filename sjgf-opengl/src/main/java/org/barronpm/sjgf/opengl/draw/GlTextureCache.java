@@ -0,0 +1,189 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.opengl.draw;
+
+import org.barronpm.sjgf.util.Args;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Shares textures between everything that loads the same image.
+ *
+ * Textures are stored under a key and handed out with a reference count; each
+ * {@link #get(String)} or {@link #put(String, GlTexture)} must be matched by a
+ * {@link GlTexture#dispose()}. Once a texture is no longer referenced it stays
+ * in the cache, so loading it again is free, until the estimated memory of all
+ * cached textures exceeds the budget. The least recently released textures
+ * are then deleted first.
+ *
+ * Textures are only deleted from the thread that releases them or changes the
+ * budget, which must be the GL thread.
+ */
+public final class GlTextureCache {
+
+    /**
+     * The default memory budget, in bytes.
+     */
+    public static final long DEFAULT_BUDGET = 256L << 20;
+
+    private final Map<String, GlTexture> textures = new HashMap<>();
+    // In the order the textures were released, oldest first
+    private final LinkedHashMap<String, GlTexture> unreferenced = new LinkedHashMap<>();
+
+    private long budget;
+    private long memoryUsage;
+
+    public GlTextureCache() {
+        this(DEFAULT_BUDGET);
+    }
+
+    /**
+     * Creates a cache that starts evicting unreferenced textures once its
+     * textures use more than <code>budget</code> bytes.
+     *
+     * @param budget the memory budget, in bytes
+     * @throws IllegalArgumentException if budget is negative
+     */
+    public GlTextureCache(long budget) {
+        setBudget(budget);
+    }
+
+    /**
+     * Returns the texture stored under the provided key, adding a reference to it.
+     *
+     * @param key the key of the texture
+     * @return the texture, or <code>null</code> if none is cached under the key
+     */
+    public synchronized GlTexture get(String key) {
+        GlTexture texture = textures.get(key);
+        if (texture == null)
+            return null;
+
+        if (texture.references++ == 0)
+            unreferenced.remove(key);
+
+        return texture;
+    }
+
+    /**
+     * Returns whether a texture is cached under the provided key, without adding a reference.
+     *
+     * @param key the key of the texture
+     * @return whether a texture is cached under the key
+     */
+    public synchronized boolean contains(String key) {
+        return textures.containsKey(key);
+    }
+
+    /**
+     * Stores a texture under the provided key with a single reference.
+     * If a texture is already stored under the key, the provided texture is
+     * deleted and the cached one is returned instead.
+     *
+     * @param key the key to store the texture under
+     * @param texture the texture to store
+     * @return the cached texture
+     * @throws IllegalArgumentException if the texture already belongs to a cache
+     */
+    public synchronized GlTexture put(String key, GlTexture texture) {
+        Args.notNull(key, "key");
+        Args.notNull(texture, "texture");
+        if (texture.cache != null)
+            throw new IllegalArgumentException("Texture is already cached");
+
+        GlTexture cached = get(key);
+        if (cached != null) {
+            texture.delete();
+            return cached;
+        }
+
+        texture.cache = this;
+        texture.cacheKey = key;
+        texture.references = 1;
+        textures.put(key, texture);
+        memoryUsage += texture.getMemorySize();
+        evict();
+
+        return texture;
+    }
+
+    synchronized void release(GlTexture texture) {
+        if (texture.references == 0)
+            return;
+
+        if (--texture.references == 0) {
+            unreferenced.put(texture.cacheKey, texture);
+            evict();
+        }
+    }
+
+    synchronized void resize(GlTexture texture, long previousSize) {
+        memoryUsage += texture.getMemorySize() - previousSize;
+        evict();
+    }
+
+    /**
+     * Deletes every texture that is no longer referenced.
+     */
+    public synchronized void clear() {
+        long budget = this.budget;
+        this.budget = 0;
+        evict();
+        this.budget = budget;
+    }
+
+    public synchronized long getBudget() {
+        return budget;
+    }
+
+    /**
+     * Sets the memory budget, evicting unreferenced textures if it is now exceeded.
+     *
+     * @param budget the memory budget, in bytes
+     * @throws IllegalArgumentException if budget is negative
+     */
+    public synchronized void setBudget(long budget) {
+        if (budget < 0)
+            throw new IllegalArgumentException("Budget must not be negative");
+        this.budget = budget;
+        evict();
+    }
+
+    /**
+     * Returns the estimated memory used by all cached textures, referenced or not.
+     *
+     * @return the memory used by cached textures, in bytes
+     */
+    public synchronized long getMemoryUsage() {
+        return memoryUsage;
+    }
+
+    private void evict() {
+        Iterator<GlTexture> iterator = unreferenced.values().iterator();
+        while (memoryUsage > budget && iterator.hasNext()) {
+            GlTexture texture = iterator.next();
+            iterator.remove();
+
+            textures.remove(texture.cacheKey);
+            memoryUsage -= texture.getMemorySize();
+            texture.delete();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.opengl.draw;
+
+import org.barronpm.sjgf.draw.Texture;
+
+/**
+ * A single layer of a {@link GlTextureArray}, drawn like any other texture.
+ * Layers of the same array are drawn without switching textures.
+ *
+ * A layer belongs to its array; disposing a layer does nothing.
+ */
+public final class GlTextureLayer implements Texture {
+
+    private final GlTextureArray array;
+    private final int index;
+
+    GlTextureLayer(GlTextureArray array, int index) {
+        this.array = array;
+        this.index = index;
+    }
+
+    public GlTextureArray getArray() {
+        return array;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    @Override
+    public int getWidth() {
+        return array.getWidth();
+    }
+
+    @Override
+    public int getHeight() {
+        return array.getHeight();
+    }
+
+    @Override
+    public void dispose() {
+    }
+}
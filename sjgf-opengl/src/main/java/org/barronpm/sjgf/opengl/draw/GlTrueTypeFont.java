@@ -0,0 +1,163 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.opengl.draw;
+
+import org.barronpm.sjgf.Disposable;
+import org.barronpm.sjgf.exceptions.SJGFException;
+import org.barronpm.sjgf.util.Args;
+import org.lwjgl.stb.STBTTFontinfo;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import static org.lwjgl.stb.STBTruetype.*;
+
+/**
+ * A TrueType or OpenType font file, rasterized with stb_truetype instead of Java 2D.
+ *
+ * The file is memory mapped rather than read, so only the tables that are used
+ * are paged in. Register the font with {@link GlGraphics#registerFont(String, GlTrueTypeFont)}
+ * to draw text with it: any {@link java.awt.Font} with the registered name
+ * then draws from this file at the font's size, without loading it into Java 2D.
+ *
+ * Bitmap glyphs are packed with stb_truetype's oversampling, which renders
+ * them wider or taller than they are drawn and so positions them more
+ * precisely. Oversampling defaults to twice horizontally.
+ */
+public final class GlTrueTypeFont implements Disposable {
+
+    public static final int DEFAULT_HORIZONTAL_OVERSAMPLING = 2;
+    public static final int DEFAULT_VERTICAL_OVERSAMPLING = 1;
+
+    private static final int MAX_OVERSAMPLING = 8;
+
+    final ByteBuffer data;
+    final int index;
+    private STBTTFontinfo info;
+
+    private int horizontalOversampling = DEFAULT_HORIZONTAL_OVERSAMPLING;
+    private int verticalOversampling = DEFAULT_VERTICAL_OVERSAMPLING;
+
+    private GlTrueTypeFont(ByteBuffer data, int index, STBTTFontinfo info) {
+        this.data = data;
+        this.index = index;
+        this.info = info;
+    }
+
+    /**
+     * Loads the first font of a TrueType or OpenType file.
+     *
+     * @param file the font file
+     * @return the loaded font
+     * @throws SJGFException if the file can't be read or is not a supported font
+     */
+    public static GlTrueTypeFont load(File file) {
+        return load(file, 0);
+    }
+
+    /**
+     * Loads a font from a TrueType or OpenType file, which may be a collection
+     * of several fonts.
+     *
+     * @param file the font file
+     * @param index the index of the font within the file
+     * @return the loaded font
+     * @throws SJGFException if the file can't be read, is not a supported font, or has no such font
+     */
+    public static GlTrueTypeFont load(File file, int index) {
+        Args.notNull(file, "file");
+
+        ByteBuffer data;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new SJGFException("Failed to read " + file + ": " + e.getMessage(), e);
+        }
+
+        int offset = stbtt_GetFontOffsetForIndex(data, index);
+        if (offset < 0)
+            throw new SJGFException(file + " has no font at index " + index);
+
+        STBTTFontinfo info = STBTTFontinfo.malloc();
+        if (!stbtt_InitFont(info, data, offset)) {
+            info.free();
+            throw new SJGFException("Failed to load " + file + ": not a supported font");
+        }
+
+        return new GlTrueTypeFont(data, index, info);
+    }
+
+    public int getHorizontalOversampling() {
+        return horizontalOversampling;
+    }
+
+    public int getVerticalOversampling() {
+        return verticalOversampling;
+    }
+
+    /**
+     * Sets how many times larger than drawn bitmap glyphs are rasterized in
+     * each direction. Applies to glyphs rasterized for sizes not yet drawn.
+     *
+     * @param horizontal the horizontal oversampling, from 1 to 8
+     * @param vertical the vertical oversampling, from 1 to 8
+     * @throws IllegalArgumentException if either is out of range
+     */
+    public void setOversampling(int horizontal, int vertical) {
+        if (horizontal < 1 || horizontal > MAX_OVERSAMPLING || vertical < 1 || vertical > MAX_OVERSAMPLING)
+            throw new IllegalArgumentException("Oversampling must be between 1 and " + MAX_OVERSAMPLING);
+        this.horizontalOversampling = horizontal;
+        this.verticalOversampling = vertical;
+    }
+
+    /**
+     * Returns whether this font has a glyph for the given code point.
+     *
+     * @param codePoint the code point
+     * @return true if the font can display the code point
+     */
+    public boolean canDisplay(int codePoint) {
+        return stbtt_FindGlyphIndex(info(), codePoint) != 0;
+    }
+
+    /**
+     * Returns the parsed font, which stb_truetype reads from native memory.
+     *
+     * @throws IllegalStateException if the font has been disposed
+     */
+    STBTTFontinfo info() {
+        if (info == null)
+            throw new IllegalStateException("TrueType font has been disposed");
+        return info;
+    }
+
+    /**
+     * Frees the font. Text still drawn in it, through a registration that was
+     * not removed, fails with an {@link IllegalStateException} rather than
+     * reading freed memory.
+     */
+    @Override
+    public void dispose() {
+        if (info != null) {
+            info.free();
+            info = null;
+        }
+    }
+}
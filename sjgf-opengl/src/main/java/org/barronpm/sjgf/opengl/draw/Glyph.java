@@ -24,11 +24,29 @@ public class Glyph {
     public final int y;
     public final float advance;
 
+    // The atlas page holding the glyph, or null if it has no image
+    final GlFont.Page page;
+    // Where the glyph is drawn, relative to the pen at the bottom of the line
+    final float left;
+    final float bottom;
+    final float quadWidth;
+    final float quadHeight;
+
     public Glyph(int width, int height, int x, int y, float advance) {
+        this(width, height, x, y, advance, null, 0, 0, width, height);
+    }
+
+    Glyph(int width, int height, int x, int y, float advance, GlFont.Page page,
+          float left, float bottom, float quadWidth, float quadHeight) {
         this.width = width;
         this.height = height;
         this.x = x;
         this.y = y;
         this.advance = advance;
+        this.page = page;
+        this.left = left;
+        this.bottom = bottom;
+        this.quadWidth = quadWidth;
+        this.quadHeight = quadHeight;
     }
 }
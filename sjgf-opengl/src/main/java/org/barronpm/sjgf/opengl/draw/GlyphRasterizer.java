@@ -0,0 +1,86 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.opengl.draw;
+
+/**
+ * Rasterizes the glyphs of one font at one size for a {@link GlFont}.
+ *
+ * Positions are in pixels at the font's size, measured up and right from
+ * the bottom left of a line, where the pen starts.
+ */
+interface GlyphRasterizer {
+
+    int getLineHeight();
+
+    int getTextHeight(String text);
+
+    /**
+     * Returns the adjustment to the advance between two code points, in pixels.
+     */
+    float getKerning(int left, int right);
+
+    /**
+     * Returns the largest width, in texels, of the images this rasterizer produces.
+     */
+    int getMaxGlyphWidth();
+
+    /**
+     * Returns whether glyph images must be sampled with linear filtering, as
+     * they are when oversampled.
+     */
+    boolean isFiltered();
+
+    /**
+     * Rasterizes a glyph. Distance field images are padded by
+     * <code>spread</code> texels, and store the distance to the glyph's
+     * edge in alpha as {@link DistanceField} does.
+     */
+    GlyphImage rasterize(int codePoint, boolean distanceField, int spread);
+
+    void dispose();
+
+    /**
+     * A rasterized glyph, as white ARGB pixels stored top down.
+     * A glyph with nothing to draw has no pixels.
+     */
+    final class GlyphImage {
+        final int[] pixels;
+        final int width;
+        final int height;
+        final float advance;
+        final float left;
+        final float bottom;
+        final float quadWidth;
+        final float quadHeight;
+
+        GlyphImage(float advance) {
+            this(null, 0, 0, advance, 0, 0, 0, 0);
+        }
+
+        GlyphImage(int[] pixels, int width, int height, float advance,
+                   float left, float bottom, float quadWidth, float quadHeight) {
+            this.pixels = pixels;
+            this.width = width;
+            this.height = height;
+            this.advance = advance;
+            this.left = left;
+            this.bottom = bottom;
+            this.quadWidth = quadWidth;
+            this.quadHeight = quadHeight;
+        }
+    }
+}
@@ -18,9 +18,12 @@ package org.barronpm.sjgf.opengl.draw;
 
 import org.barronpm.sjgf.draw.Camera;
 import org.barronpm.sjgf.draw.OrthographicCamera;
+import org.barronpm.sjgf.math.Matrix4;
 import org.barronpm.sjgf.math.Vector3;
 import org.lwjgl.glfw.GLFWWindowSizeCallback;
 
+import java.nio.FloatBuffer;
+
 public final class PixelBasedCamera extends GLFWWindowSizeCallback implements Camera {
 
     private OrthographicCamera camera;
@@ -29,6 +32,16 @@ public final class PixelBasedCamera extends GLFWWindowSizeCallback implements Ca
         camera = new OrthographicCamera(0, width, 0, height);
     }
 
+    @Override
+    public Matrix4 getProjection() {
+        return camera.getProjection();
+    }
+
+    @Override
+    public long getModificationCount() {
+        return camera.getModificationCount();
+    }
+
     @Override
     public Vector3 project(Vector3 in) {
         return camera.project(in);
@@ -44,6 +57,21 @@ public final class PixelBasedCamera extends GLFWWindowSizeCallback implements Ca
         return camera.project(x, y, z);
     }
 
+    @Override
+    public float[] project(float x, float y, float z, float[] out, int offset) {
+        return camera.project(x, y, z, out, offset);
+    }
+
+    @Override
+    public FloatBuffer project(float x, float y, float z, FloatBuffer out) {
+        return camera.project(x, y, z, out);
+    }
+
+    @Override
+    public void projectAll(float[] in, float[] out, int count) {
+        camera.projectAll(in, out, count);
+    }
+
     @Override
     public Vector3 invertProject(Vector3 in) {
         return camera.invertProject(in);
@@ -60,7 +88,26 @@ public final class PixelBasedCamera extends GLFWWindowSizeCallback implements Ca
     }
 
     @Override
-    public void invoke(long window, int width, int height) {
+    public float[] invertProject(float x, float y, float z, float[] out, int offset) {
+        return camera.invertProject(x, y, z, out, offset);
+    }
+
+    @Override
+    public FloatBuffer invertProject(float x, float y, float z, FloatBuffer out) {
+        return camera.invertProject(x, y, z, out);
+    }
+
+    @Override
+    public void invertProjectAll(float[] in, float[] out, int count) {
+        camera.invertProjectAll(in, out, count);
+    }
+
+    public void setSize(int width, int height) {
         camera.setViewport(0, width, 0, height);
     }
+
+    @Override
+    public void invoke(long window, int width, int height) {
+        setSize(width, height);
+    }
 }
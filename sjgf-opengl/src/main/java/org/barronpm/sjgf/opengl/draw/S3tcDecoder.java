@@ -0,0 +1,224 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.opengl.draw;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Decodes and flips S3TC (DXT1, DXT3 and DXT5) compressed images on the CPU.
+ *
+ * Blocks cover 4x4 texels and are stored row by row, little endian. DXT1
+ * blocks hold only a color block; DXT3 and DXT5 blocks prefix it with an
+ * 8 byte alpha block.
+ */
+final class S3tcDecoder {
+
+    static final int DXT1 = 1;
+    static final int DXT3 = 3;
+    static final int DXT5 = 5;
+
+    private S3tcDecoder() {}
+
+    static int blockBytes(int format) {
+        return format == DXT1 ? 8 : 16;
+    }
+
+    /**
+     * Decodes one image into RGBA8 pixels, keeping the row order of the source.
+     */
+    static void decode(int format, ByteBuffer source, int width, int height, ByteBuffer destination) {
+        int blockBytes = blockBytes(format);
+        int blocksWide = (width + 3) / 4;
+        int blocksHigh = (height + 3) / 4;
+        int base = source.position();
+        int[] colors = new int[4];
+        int[] alphas = new int[8];
+
+        for (int by = 0; by < blocksHigh; by++) {
+            for (int bx = 0; bx < blocksWide; bx++) {
+                int block = base + (by * blocksWide + bx) * blockBytes;
+                int colorBlock = format == DXT1 ? block : block + 8;
+
+                readColors(source, colorBlock, format == DXT1, colors);
+                if (format == DXT5)
+                    readAlphas(source, block, alphas);
+                long alphaBits = format == DXT5 ? readAlphaBits(source, block) : 0;
+
+                for (int row = 0; row < 4; row++) {
+                    int y = by * 4 + row;
+                    if (y >= height)
+                        break;
+
+                    int indices = source.get(colorBlock + 4 + row) & 0xFF;
+                    for (int column = 0; column < 4; column++) {
+                        int x = bx * 4 + column;
+                        if (x >= width)
+                            break;
+
+                        int color = colors[(indices >> (column * 2)) & 3];
+                        int alpha;
+                        switch (format) {
+                            case DXT3:
+                                int nibbles = readShort(source, block + row * 2);
+                                alpha = ((nibbles >> (column * 4)) & 0xF) * 17;
+                                break;
+                            case DXT5:
+                                alpha = alphas[(int) (alphaBits >> ((row * 4 + column) * 3)) & 7];
+                                break;
+                            default:
+                                alpha = color >>> 24;
+                                break;
+                        }
+
+                        int target = (y * width + x) * 4;
+                        destination.put(target, (byte) (color >> 16));
+                        destination.put(target + 1, (byte) (color >> 8));
+                        destination.put(target + 2, (byte) color);
+                        destination.put(target + 3, (byte) alpha);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Reverses the row order of an image in place, block rows and the rows within each block.
+     *
+     * @throws IllegalArgumentException if the height is larger than 4 and not a multiple of 4
+     */
+    static void flip(int format, ByteBuffer data, int width, int height) {
+        if (height > 4 && height % 4 != 0)
+            throw new IllegalArgumentException("Can only flip images whose height is a multiple of 4");
+
+        int blockBytes = blockBytes(format);
+        int rowBytes = ((width + 3) / 4) * blockBytes;
+        int blocksHigh = (height + 3) / 4;
+        int rows = Math.min(height, 4);
+        int base = data.position();
+
+        byte[] top = new byte[rowBytes];
+        byte[] bottom = new byte[rowBytes];
+        for (int by = 0; by < blocksHigh / 2; by++) {
+            int topOffset = base + by * rowBytes;
+            int bottomOffset = base + (blocksHigh - 1 - by) * rowBytes;
+            get(data, topOffset, top);
+            get(data, bottomOffset, bottom);
+            put(data, topOffset, bottom);
+            put(data, bottomOffset, top);
+        }
+
+        int blocks = blocksHigh * ((width + 3) / 4);
+        for (int i = 0; i < blocks; i++) {
+            int block = base + i * blockBytes;
+            int colorBlock = format == DXT1 ? block : block + 8;
+
+            reverse(data, colorBlock + 4, 1, rows);
+            if (format == DXT3)
+                reverse(data, block, 2, rows);
+            else if (format == DXT5)
+                flipAlphaBits(data, block, rows);
+        }
+    }
+
+    private static void readColors(ByteBuffer source, int offset, boolean dxt1, int[] colors) {
+        int c0 = readShort(source, offset);
+        int c1 = readShort(source, offset + 2);
+        int r0 = expand(c0 >> 11, 5), g0 = expand(c0 >> 5 & 0x3F, 6), b0 = expand(c0 & 0x1F, 5);
+        int r1 = expand(c1 >> 11, 5), g1 = expand(c1 >> 5 & 0x3F, 6), b1 = expand(c1 & 0x1F, 5);
+
+        colors[0] = rgba(r0, g0, b0, 255);
+        colors[1] = rgba(r1, g1, b1, 255);
+        if (c0 > c1 || !dxt1) {
+            colors[2] = rgba((2 * r0 + r1) / 3, (2 * g0 + g1) / 3, (2 * b0 + b1) / 3, 255);
+            colors[3] = rgba((r0 + 2 * r1) / 3, (g0 + 2 * g1) / 3, (b0 + 2 * b1) / 3, 255);
+        } else {
+            colors[2] = rgba((r0 + r1) / 2, (g0 + g1) / 2, (b0 + b1) / 2, 255);
+            colors[3] = 0;
+        }
+    }
+
+    private static void readAlphas(ByteBuffer source, int offset, int[] alphas) {
+        int a0 = source.get(offset) & 0xFF;
+        int a1 = source.get(offset + 1) & 0xFF;
+        alphas[0] = a0;
+        alphas[1] = a1;
+
+        if (a0 > a1) {
+            for (int i = 1; i < 7; i++)
+                alphas[i + 1] = ((7 - i) * a0 + i * a1) / 7;
+        } else {
+            for (int i = 1; i < 5; i++)
+                alphas[i + 1] = ((5 - i) * a0 + i * a1) / 5;
+            alphas[6] = 0;
+            alphas[7] = 255;
+        }
+    }
+
+    private static int readShort(ByteBuffer source, int offset) {
+        return (source.get(offset) & 0xFF) | (source.get(offset + 1) & 0xFF) << 8;
+    }
+
+    private static long readAlphaBits(ByteBuffer source, int offset) {
+        long bits = 0;
+        for (int i = 0; i < 6; i++)
+            bits |= (long) (source.get(offset + 2 + i) & 0xFF) << (i * 8);
+        return bits;
+    }
+
+    private static void flipAlphaBits(ByteBuffer data, int offset, int rows) {
+        long bits = readAlphaBits(data, offset);
+        long flipped = bits;
+        for (int row = 0; row < rows; row++) {
+            long rowBits = (bits >> (row * 12)) & 0xFFF;
+            int target = (rows - 1 - row) * 12;
+            flipped = (flipped & ~(0xFFFL << target)) | rowBits << target;
+        }
+
+        for (int i = 0; i < 6; i++)
+            data.put(offset + 2 + i, (byte) (flipped >> (i * 8)));
+    }
+
+    private static void reverse(ByteBuffer data, int offset, int unitBytes, int units) {
+        for (int i = 0; i < units / 2; i++) {
+            int a = offset + i * unitBytes;
+            int b = offset + (units - 1 - i) * unitBytes;
+            for (int j = 0; j < unitBytes; j++) {
+                byte temp = data.get(a + j);
+                data.put(a + j, data.get(b + j));
+                data.put(b + j, temp);
+            }
+        }
+    }
+
+    private static void get(ByteBuffer data, int offset, byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++)
+            bytes[i] = data.get(offset + i);
+    }
+
+    private static void put(ByteBuffer data, int offset, byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++)
+            data.put(offset + i, bytes[i]);
+    }
+
+    private static int expand(int value, int bits) {
+        return (value << (8 - bits)) | (value >> (2 * bits - 8));
+    }
+
+    private static int rgba(int r, int g, int b, int a) {
+        return a << 24 | r << 16 | g << 8 | b;
+    }
+}
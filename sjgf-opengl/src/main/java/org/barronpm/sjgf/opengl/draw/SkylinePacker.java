@@ -0,0 +1,144 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.opengl.draw;
+
+import java.util.Arrays;
+
+/**
+ * Packs rectangles into a fixed area using the skyline bottom-left heuristic.
+ * The packer tracks the top edge of everything placed so far as a list of
+ * horizontal segments, and places each rectangle where its top ends up lowest.
+ */
+final class SkylinePacker {
+
+    private final int width;
+    private final int height;
+
+    // Segments of the skyline from left to right
+    private int[] xs = new int[16];
+    private int[] ys = new int[16];
+    private int[] widths = new int[16];
+    private int count;
+
+    SkylinePacker(int width, int height) {
+        this.width = width;
+        this.height = height;
+
+        widths[0] = width;
+        count = 1;
+    }
+
+    /**
+     * Finds room for a rectangle and marks it as used.
+     *
+     * @return the position of the rectangle's bottom-left corner, as x in the
+     * high 32 bits and y in the low 32 bits, or -1 if it does not fit
+     */
+    long pack(int rectWidth, int rectHeight) {
+        int bestIndex = -1;
+        int bestTop = Integer.MAX_VALUE;
+        int bestWidth = Integer.MAX_VALUE;
+        int bestY = 0;
+
+        for (int i = 0; i < count; i++) {
+            int y = fit(i, rectWidth, rectHeight);
+            if (y < 0)
+                continue;
+
+            int top = y + rectHeight;
+            if (top < bestTop || (top == bestTop && widths[i] < bestWidth)) {
+                bestIndex = i;
+                bestTop = top;
+                bestWidth = widths[i];
+                bestY = y;
+            }
+        }
+
+        if (bestIndex < 0)
+            return -1;
+
+        int x = xs[bestIndex];
+        insert(bestIndex, x, bestTop, rectWidth);
+        return (long) x << 32 | bestY;
+    }
+
+    /**
+     * Returns the lowest y at which a rectangle fits with its left edge at
+     * the start of the provided segment, or -1 if it does not fit there.
+     */
+    private int fit(int index, int rectWidth, int rectHeight) {
+        int x = xs[index];
+        if (x + rectWidth > width)
+            return -1;
+
+        int y = 0;
+        int remaining = rectWidth;
+        for (int i = index; remaining > 0; i++) {
+            y = Math.max(y, ys[i]);
+            if (y + rectHeight > height)
+                return -1;
+            remaining -= widths[i];
+        }
+        return y;
+    }
+
+    private void insert(int index, int x, int y, int segmentWidth) {
+        if (count == xs.length) {
+            xs = Arrays.copyOf(xs, count * 2);
+            ys = Arrays.copyOf(ys, count * 2);
+            widths = Arrays.copyOf(widths, count * 2);
+        }
+
+        System.arraycopy(xs, index, xs, index + 1, count - index);
+        System.arraycopy(ys, index, ys, index + 1, count - index);
+        System.arraycopy(widths, index, widths, index + 1, count - index);
+        xs[index] = x;
+        ys[index] = y;
+        widths[index] = segmentWidth;
+        count++;
+
+        // Trim or remove the segments now covered by the new one
+        int right = x + segmentWidth;
+        int next = index + 1;
+        while (next < count && xs[next] < right) {
+            int shrink = right - xs[next];
+            if (widths[next] > shrink) {
+                xs[next] += shrink;
+                widths[next] -= shrink;
+                break;
+            }
+            remove(next);
+        }
+
+        // Join neighbouring segments at the same height
+        for (int i = 0; i < count - 1; ) {
+            if (ys[i] == ys[i + 1]) {
+                widths[i] += widths[i + 1];
+                remove(i + 1);
+            } else {
+                i++;
+            }
+        }
+    }
+
+    private void remove(int index) {
+        System.arraycopy(xs, index + 1, xs, index, count - index - 1);
+        System.arraycopy(ys, index + 1, ys, index, count - index - 1);
+        System.arraycopy(widths, index + 1, widths, index, count - index - 1);
+        count--;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.opengl.draw;
+
+import org.lwjgl.stb.STBTTPackContext;
+import org.lwjgl.stb.STBTTPackedchar;
+import org.lwjgl.system.MemoryStack;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+import static org.lwjgl.stb.STBTruetype.*;
+import static org.lwjgl.system.MemoryUtil.memAlloc;
+import static org.lwjgl.system.MemoryUtil.memFree;
+
+/**
+ * Rasterizes glyphs of a {@link GlTrueTypeFont} with stb_truetype. Bitmap
+ * glyphs are rendered with the packing API so that they are oversampled;
+ * distance field glyphs are computed from the glyph outlines.
+ */
+class StbGlyphRasterizer implements GlyphRasterizer {
+
+    private final GlTrueTypeFont font;
+    private final float size;
+    private final float scale;
+    private final int horizontalOversampling;
+    private final int verticalOversampling;
+
+    private final int lineHeight;
+    private final float baseline;
+
+    private final STBTTPackContext context = STBTTPackContext.malloc();
+    private final STBTTPackedchar.Buffer packed = STBTTPackedchar.malloc(1);
+    private final int scratchWidth;
+    private final int scratchHeight;
+    private final ByteBuffer scratch;
+
+    StbGlyphRasterizer(GlTrueTypeFont font, float size) {
+        this.font = font;
+        this.size = size;
+        this.horizontalOversampling = font.getHorizontalOversampling();
+        this.verticalOversampling = font.getVerticalOversampling();
+        scale = stbtt_ScaleForMappingEmToPixels(font.info(), size);
+
+        MemoryStack stack = MemoryStack.stackPush();
+        try {
+            IntBuffer ascent = stack.mallocInt(1);
+            IntBuffer descent = stack.mallocInt(1);
+            IntBuffer lineGap = stack.mallocInt(1);
+            stbtt_GetFontVMetrics(font.info(), ascent, descent, lineGap);
+
+            lineHeight = (int) Math.ceil((ascent.get(0) - descent.get(0) + lineGap.get(0)) * scale);
+            baseline = (lineGap.get(0) - descent.get(0)) * scale;
+        } finally {
+            stack.pop();
+        }
+
+        // Glyphs are assumed to be at most twice as wide and as tall as a line; larger ones are cut off
+        scratchWidth = lineHeight * 2 * horizontalOversampling + 2;
+        scratchHeight = lineHeight * 2 * verticalOversampling + 2;
+        scratch = memAlloc(scratchWidth * scratchHeight);
+    }
+
+    @Override
+    public int getLineHeight() {
+        return lineHeight;
+    }
+
+    @Override
+    public int getTextHeight(String text) {
+        return lineHeight;
+    }
+
+    @Override
+    public float getKerning(int left, int right) {
+        return stbtt_GetCodepointKernAdvance(font.info(), left, right) * scale;
+    }
+
+    @Override
+    public int getMaxGlyphWidth() {
+        return Math.max(scratchWidth, scratchHeight);
+    }
+
+    @Override
+    public boolean isFiltered() {
+        return horizontalOversampling > 1 || verticalOversampling > 1;
+    }
+
+    @Override
+    public GlyphImage rasterize(int codePoint, boolean distanceField, int spread) {
+        return distanceField ? rasterizeDistanceField(codePoint, spread) : rasterizeBitmap(codePoint);
+    }
+
+    private GlyphImage rasterizeBitmap(int codePoint) {
+        // The packing API parses the file itself, but a disposed font should fail the same way
+        font.info();
+        if (!stbtt_PackBegin(context, scratch, scratchWidth, scratchHeight, 0, 1))
+            return new GlyphImage(advance(codePoint));
+
+        boolean fits;
+        try {
+            stbtt_PackSetOversampling(context, horizontalOversampling, verticalOversampling);
+            // A negative size is an em size, matching java.awt.Font
+            fits = stbtt_PackFontRange(context, font.data, font.index, -size, codePoint, packed);
+        } finally {
+            stbtt_PackEnd(context);
+        }
+
+        STBTTPackedchar glyph = packed.get(0);
+        int width = glyph.x1() - glyph.x0();
+        int height = glyph.y1() - glyph.y0();
+        if (!fits || width <= 0 || height <= 0)
+            return new GlyphImage(fits ? glyph.xadvance() : advance(codePoint));
+
+        int[] pixels = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            int row = (glyph.y0() + y) * scratchWidth + glyph.x0();
+            for (int x = 0; x < width; x++)
+                pixels[y * width + x] = (scratch.get(row + x) & 0xFF) << 24 | 0xFFFFFF;
+        }
+
+        return new GlyphImage(pixels, width, height, glyph.xadvance(),
+                glyph.xoff(), baseline - glyph.yoff2(),
+                glyph.xoff2() - glyph.xoff(), glyph.yoff2() - glyph.yoff());
+    }
+
+    private GlyphImage rasterizeDistanceField(int codePoint, int spread) {
+        MemoryStack stack = MemoryStack.stackPush();
+        try {
+            IntBuffer width = stack.mallocInt(1);
+            IntBuffer height = stack.mallocInt(1);
+            IntBuffer xOffset = stack.mallocInt(1);
+            IntBuffer yOffset = stack.mallocInt(1);
+
+            // Matches DistanceField: 0.5 on the edge, reaching 0 and 1 at spread pixels
+            ByteBuffer field = stbtt_GetCodepointSDF(font.info(), scale, codePoint, spread,
+                    (byte) 128, 127f / spread, width, height, xOffset, yOffset);
+            if (field == null)
+                return new GlyphImage(advance(codePoint));
+
+            try {
+                int w = width.get(0);
+                int h = height.get(0);
+                int[] pixels = new int[w * h];
+                for (int i = 0; i < pixels.length; i++)
+                    pixels[i] = (field.get(i) & 0xFF) << 24 | 0xFFFFFF;
+
+                return new GlyphImage(pixels, w, h, advance(codePoint),
+                        xOffset.get(0), baseline - yOffset.get(0) - h, w, h);
+            } finally {
+                stbtt_FreeSDF(field);
+            }
+        } finally {
+            stack.pop();
+        }
+    }
+
+    private float advance(int codePoint) {
+        MemoryStack stack = MemoryStack.stackPush();
+        try {
+            IntBuffer advance = stack.mallocInt(1);
+            IntBuffer leftSideBearing = stack.mallocInt(1);
+            stbtt_GetCodepointHMetrics(font.info(), codePoint, advance, leftSideBearing);
+            return advance.get(0) * scale;
+        } finally {
+            stack.pop();
+        }
+    }
+
+    @Override
+    public void dispose() {
+        context.free();
+        packed.free();
+        memFree(scratch);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.opengl.draw;
+
+import org.barronpm.sjgf.draw.Color;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.lwjgl.opengl.GL11.GL_FLOAT;
+import static org.lwjgl.opengl.GL11.GL_UNSIGNED_BYTE;
+import static org.lwjgl.opengl.GL11.GL_UNSIGNED_SHORT;
+import static org.lwjgl.opengl.GL20.glVertexAttribPointer;
+import static org.lwjgl.opengl.GL30.glVertexAttribIPointer;
+
+/**
+ * Describes the interleaved vertex layouts used by the batches.
+ * Shape vertices are a position followed by a packed RGBA8 color; texture
+ * vertices append a texture coordinate, the texture slot to sample from and,
+ * for texture arrays, the layer within it. The high bit of the slot marks
+ * textures holding a distance field rather than coverage.
+ */
+final class VertexFormat {
+
+    static final int SHAPE_STRIDE = 3 * Float.BYTES + Integer.BYTES;
+    static final int TEXTURE_STRIDE = SHAPE_STRIDE + 2 * Float.BYTES + Integer.BYTES;
+    static final int DISTANCE_FIELD = 0x80;
+
+    private static final boolean LITTLE_ENDIAN = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+    private VertexFormat() {}
+
+    static int pack(Color color) {
+        int packed = toByte(color.getRed())
+                | toByte(color.getGreen()) << 8
+                | toByte(color.getBlue()) << 16
+                | toByte(color.getAlpha()) << 24;
+
+        return LITTLE_ENDIAN ? packed : Integer.reverseBytes(packed);
+    }
+
+    static int putShapeVertex(ByteBuffer buffer, int index, float x, float y, float z, int color) {
+        buffer.putFloat(index, x);
+        buffer.putFloat(index + 4, y);
+        buffer.putFloat(index + 8, z);
+        buffer.putInt(index + 12, color);
+        return index + SHAPE_STRIDE;
+    }
+
+    static int putTextureVertex(ByteBuffer buffer, int index, float x, float y, float z, int color,
+                                float u, float v, int slot, int layer) {
+        putShapeVertex(buffer, index, x, y, z, color);
+        buffer.putFloat(index + 16, u);
+        buffer.putFloat(index + 20, v);
+        buffer.put(index + 24, (byte) slot);
+        buffer.putShort(index + 26, (short) layer);
+        return index + TEXTURE_STRIDE;
+    }
+
+    static int getTextureSlot(ByteBuffer buffer, int index) {
+        return buffer.get(index + 24) & 0xFF;
+    }
+
+    static void putTextureSlot(ByteBuffer buffer, int index, int slot) {
+        buffer.put(index + 24, (byte) slot);
+    }
+
+    static void pointShapeAttributes(int offset) {
+        glVertexAttribPointer(0, 3, GL_FLOAT, false, SHAPE_STRIDE, offset);
+        glVertexAttribPointer(1, 4, GL_UNSIGNED_BYTE, true, SHAPE_STRIDE, offset + 12);
+    }
+
+    static void pointTextureAttributes(int offset) {
+        glVertexAttribPointer(0, 3, GL_FLOAT, false, TEXTURE_STRIDE, offset);
+        glVertexAttribPointer(1, 4, GL_UNSIGNED_BYTE, true, TEXTURE_STRIDE, offset + 12);
+        glVertexAttribPointer(2, 2, GL_FLOAT, false, TEXTURE_STRIDE, offset + 16);
+        glVertexAttribIPointer(3, 1, GL_UNSIGNED_BYTE, TEXTURE_STRIDE, offset + 24);
+        glVertexAttribIPointer(4, 1, GL_UNSIGNED_SHORT, TEXTURE_STRIDE, offset + 26);
+    }
+
+    private static int toByte(float component) {
+        return Math.min(255, (int) (component * 255 + .5f));
+    }
+}
@@ -1,5 +1,7 @@
 #version 330 core
 
+uniform mat4 projection;
+
 layout (location = 0) in vec3 pos;
 layout (location = 1) in vec4 col;
 
@@ -7,6 +9,6 @@ out vec4 color;
 
 void main()
 {
-    gl_Position = vec4(pos, 1.0);
+    gl_Position = projection * vec4(pos, 1.0);
     color = col;
 }
\ No newline at end of file
@@ -1,13 +1,29 @@
 #version 330 core
 
-uniform sampler2D tex;
+uniform sampler2D textures[MAX_TEXTURES];
+uniform sampler2DArray textureArrays[MAX_TEXTURE_ARRAYS];
 
 in vec2 texCoord;
 in vec4 texColor;
+flat in uint texSlot;
+flat in uint texLayer;
 
 out vec4 fragColor;
 
+vec4 sampleTexture(uint slot, uint layer, vec2 coord, vec2 dx, vec2 dy)
+{
+    // SAMPLE_TEXTURES
+    return vec4(0.0);
+}
+
 void main()
 {
-    fragColor = texture(tex, texCoord) * texColor;
+    vec4 color = sampleTexture(texSlot & 0x7Fu, texLayer, texCoord, dFdx(texCoord), dFdy(texCoord));
+
+    // Distance fields store the edge at 0.5; smooth it over about a pixel at any scale
+    float edge = max(fwidth(color.a), 1.0 / 255.0) * 0.5;
+    if ((texSlot & 0x80u) != 0u)
+        color.a = smoothstep(0.5 - edge, 0.5 + edge, color.a);
+
+    fragColor = color * texColor;
 }
\ No newline at end of file
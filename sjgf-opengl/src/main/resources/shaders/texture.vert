@@ -1,15 +1,23 @@
 #version 330 core
 
+uniform mat4 projection;
+
 layout (location = 0) in vec3 pos;
-layout (location = 1) in vec2 texPos;
-layout (location = 2) in vec4 color;
+layout (location = 1) in vec4 color;
+layout (location = 2) in vec2 texPos;
+layout (location = 3) in uint slot;
+layout (location = 4) in uint layer;
 
 out vec2 texCoord;
 out vec4 texColor;
+flat out uint texSlot;
+flat out uint texLayer;
 
 void main()
 {
-    gl_Position = vec4(pos.x, pos.y, pos.z, 1.0);
+    gl_Position = projection * vec4(pos, 1.0);
     texCoord = texPos;
     texColor = color;
+    texSlot = slot;
+    texLayer = layer;
 }
\ No newline at end of file
@@ -0,0 +1,125 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.opengl.draw;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DistanceFieldTest {
+
+    @Test
+    public void matchesBruteForceOnRandomShapes() {
+        Random random = new Random(5);
+        for (int[] size : new int[][] {{1, 1}, {7, 3}, {3, 7}, {16, 16}, {23, 11}}) {
+            int width = size[0];
+            int height = size[1];
+            for (int shape = 0; shape < 10; shape++) {
+                int[] argb = new int[width * height];
+                for (int i = 0; i < argb.length; i++)
+                    argb[i] = random.nextInt(256) << 24 | random.nextInt(0x1000000);
+                int spread = 1 + random.nextInt(4);
+
+                int[] expected = bruteForce(argb, width, height, spread);
+                DistanceField.compute(argb, width, height, spread);
+
+                for (int i = 0; i < argb.length; i++) {
+                    assertEquals(0xFFFFFF, argb[i] & 0xFFFFFF);
+                    assertEquals(width + "x" + height + " pixel " + i,
+                            expected[i] >>> 24, argb[i] >>> 24, 1);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void edgeIsHalfway() {
+        // Left half covered, right half empty
+        int[] argb = new int[8 * 4];
+        for (int y = 0; y < 4; y++)
+            for (int x = 0; x < 4; x++)
+                argb[y * 8 + x] = 0xFF000000;
+
+        DistanceField.compute(argb, 8, 4, 2);
+
+        for (int y = 0; y < 4; y++) {
+            assertEquals(191, alpha(argb, 8, 3, y));
+            assertEquals(64, alpha(argb, 8, 4, y));
+            assertEquals(255, alpha(argb, 8, 0, y));
+            assertEquals(0, alpha(argb, 8, 7, y));
+        }
+    }
+
+    @Test
+    public void emptyImageIsOutside() {
+        int[] argb = new int[5 * 5];
+
+        DistanceField.compute(argb, 5, 5, 3);
+
+        for (int pixel : argb)
+            assertEquals(0x00FFFFFF, pixel);
+    }
+
+    @Test
+    public void fullImageIsInside() {
+        int[] argb = new int[5 * 5];
+        Arrays.fill(argb, 0x80000000);
+
+        DistanceField.compute(argb, 5, 5, 3);
+
+        for (int pixel : argb)
+            assertEquals(0xFFFFFFFF, pixel);
+    }
+
+    private static int alpha(int[] argb, int width, int x, int y) {
+        return argb[y * width + x] >>> 24;
+    }
+
+    private static int[] bruteForce(int[] argb, int width, int height, int spread) {
+        int[] result = new int[argb.length];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                double outside = nearest(argb, width, height, x, y, true);
+                double inside = nearest(argb, width, height, x, y, false);
+                double distance = outside - inside;
+                double value = Math.max(0, Math.min(1, .5 - distance / (2 * spread)));
+                result[y * width + x] = (int) Math.round(value * 255) << 24 | 0xFFFFFF;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the distance from a pixel to the nearest pixel that is, or is not, covered.
+     */
+    private static double nearest(int[] argb, int width, int height, int x, int y, boolean covered) {
+        double nearest = Double.POSITIVE_INFINITY;
+        for (int py = 0; py < height; py++) {
+            for (int px = 0; px < width; px++) {
+                if (((argb[py * width + px] >>> 24) >= 128) == covered) {
+                    int dx = px - x;
+                    int dy = py - y;
+                    nearest = Math.min(nearest, Math.sqrt(dx * dx + dy * dy));
+                }
+            }
+        }
+        return nearest;
+    }
+}
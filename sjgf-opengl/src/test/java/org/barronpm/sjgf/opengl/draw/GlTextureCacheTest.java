@@ -0,0 +1,192 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.opengl.draw;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+import static org.lwjgl.opengl.GL11.GL_TEXTURE_2D;
+
+public class GlTextureCacheTest {
+
+    @Test
+    public void getSharesTexture() {
+        GlTextureCache cache = new GlTextureCache(100);
+        FakeTexture texture = new FakeTexture(10);
+
+        assertSame(texture, cache.put("a", texture));
+        assertSame(texture, cache.get("a"));
+        assertTrue(cache.contains("a"));
+        assertNull(cache.get("b"));
+        assertEquals(10, cache.getMemoryUsage());
+    }
+
+    @Test
+    public void releasedTextureStaysCachedWithinBudget() {
+        GlTextureCache cache = new GlTextureCache(100);
+        FakeTexture texture = new FakeTexture(10);
+        cache.put("a", texture);
+        cache.get("a");
+
+        texture.dispose();
+        texture.dispose();
+
+        assertFalse(texture.deleted);
+        assertSame(texture, cache.get("a"));
+    }
+
+    @Test
+    public void evictsLeastRecentlyReleasedFirst() {
+        GlTextureCache cache = new GlTextureCache(25);
+        FakeTexture first = new FakeTexture(10);
+        FakeTexture second = new FakeTexture(10);
+        cache.put("first", first);
+        cache.put("second", second);
+
+        first.dispose();
+        second.dispose();
+        FakeTexture third = new FakeTexture(10);
+        cache.put("third", third);
+
+        assertTrue(first.deleted);
+        assertFalse(second.deleted);
+        assertFalse(cache.contains("first"));
+        assertTrue(cache.contains("second"));
+        assertEquals(20, cache.getMemoryUsage());
+    }
+
+    @Test
+    public void referencedTexturesAreNotEvicted() {
+        GlTextureCache cache = new GlTextureCache(15);
+        FakeTexture first = new FakeTexture(10);
+        FakeTexture second = new FakeTexture(10);
+        cache.put("first", first);
+        cache.put("second", second);
+
+        assertFalse(first.deleted);
+        assertFalse(second.deleted);
+        assertEquals(20, cache.getMemoryUsage());
+
+        second.dispose();
+
+        assertTrue(second.deleted);
+        assertFalse(first.deleted);
+        assertEquals(10, cache.getMemoryUsage());
+    }
+
+    @Test
+    public void getRevivesReleasedTexture() {
+        GlTextureCache cache = new GlTextureCache(15);
+        FakeTexture first = new FakeTexture(10);
+        cache.put("first", first);
+        first.dispose();
+
+        assertSame(first, cache.get("first"));
+        cache.put("second", new FakeTexture(10));
+
+        assertFalse(first.deleted);
+    }
+
+    @Test
+    public void putUnderExistingKeyDeletesNewTexture() {
+        GlTextureCache cache = new GlTextureCache(100);
+        FakeTexture cached = new FakeTexture(10);
+        FakeTexture duplicate = new FakeTexture(10);
+        cache.put("a", cached);
+
+        assertSame(cached, cache.put("a", duplicate));
+        assertTrue(duplicate.deleted);
+        assertEquals(10, cache.getMemoryUsage());
+
+        // The duplicate's put took a reference, so two releases are needed
+        cached.dispose();
+        cache.setBudget(0);
+        assertFalse(cached.deleted);
+        cached.dispose();
+        assertTrue(cached.deleted);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTextureFromAnotherCache() {
+        FakeTexture texture = new FakeTexture(10);
+        new GlTextureCache().put("a", texture);
+        new GlTextureCache().put("a", texture);
+    }
+
+    @Test
+    public void extraDisposeIsIgnored() {
+        GlTextureCache cache = new GlTextureCache(100);
+        FakeTexture texture = new FakeTexture(10);
+        cache.put("a", texture);
+
+        texture.dispose();
+        texture.dispose();
+        cache.get("a");
+        cache.clear();
+
+        assertFalse(texture.deleted);
+    }
+
+    @Test
+    public void clearDeletesOnlyUnreferencedTextures() {
+        GlTextureCache cache = new GlTextureCache(100);
+        FakeTexture kept = new FakeTexture(10);
+        FakeTexture released = new FakeTexture(10);
+        cache.put("kept", kept);
+        cache.put("released", released);
+        released.dispose();
+
+        cache.clear();
+
+        assertFalse(kept.deleted);
+        assertTrue(released.deleted);
+        assertEquals(100, cache.getBudget());
+        assertEquals(10, cache.getMemoryUsage());
+    }
+
+    @Test
+    public void loweringBudgetEvicts() {
+        GlTextureCache cache = new GlTextureCache(100);
+        FakeTexture texture = new FakeTexture(10);
+        cache.put("a", texture);
+        texture.dispose();
+
+        cache.setBudget(5);
+
+        assertTrue(texture.deleted);
+        assertEquals(0, cache.getMemoryUsage());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeBudget() {
+        new GlTextureCache(-1);
+    }
+
+    private static final class FakeTexture extends GlTexture {
+        private boolean deleted = false;
+
+        private FakeTexture(long memorySize) {
+            super(GL_TEXTURE_2D, 0, 1, 1, memorySize);
+        }
+
+        @Override
+        void delete() {
+            assertFalse("Texture deleted twice", deleted);
+            deleted = true;
+        }
+    }
+}
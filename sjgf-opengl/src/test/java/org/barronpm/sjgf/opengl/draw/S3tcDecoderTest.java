@@ -0,0 +1,185 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.opengl.draw;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.barronpm.sjgf.opengl.draw.S3tcDecoder.*;
+import static org.junit.Assert.*;
+
+public class S3tcDecoderTest {
+
+    private static final int[] FORMATS = {DXT1, DXT3, DXT5};
+    private static final int[] HEIGHTS = {1, 2, 3, 4, 8, 16};
+
+    @Test
+    public void decodesDxt1Colors() {
+        // Red and blue endpoints, texels pick indices 0, 1, 2 and 3 along each row
+        ByteBuffer block = bytes(0x00, 0xF8, 0x1F, 0x00, 0xE4, 0xE4, 0xE4, 0xE4);
+        ByteBuffer pixels = decode(DXT1, block, 4, 4);
+
+        assertPixel(pixels, 4, 0, 0, 255, 0, 0, 255);
+        assertPixel(pixels, 4, 1, 0, 0, 0, 255, 255);
+        assertPixel(pixels, 4, 2, 0, 170, 0, 85, 255);
+        assertPixel(pixels, 4, 3, 0, 85, 0, 170, 255);
+    }
+
+    @Test
+    public void decodesDxt1PunchThroughAlpha() {
+        // First endpoint not greater than the second selects the three color mode
+        ByteBuffer block = bytes(0x1F, 0x00, 0x00, 0xF8, 0xE4, 0xE4, 0xE4, 0xE4);
+        ByteBuffer pixels = decode(DXT1, block, 4, 4);
+
+        assertPixel(pixels, 4, 2, 0, 127, 0, 127, 255);
+        assertPixel(pixels, 4, 3, 0, 0, 0, 0, 0);
+    }
+
+    @Test
+    public void decodesDxt3Alpha() {
+        ByteBuffer block = bytes(
+                0x10, 0x32, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF,
+                0xFF, 0xFF, 0xFF, 0xFF, 0x00, 0x00, 0x00, 0x00);
+        ByteBuffer pixels = decode(DXT3, block, 4, 4);
+
+        assertPixel(pixels, 4, 0, 0, 255, 255, 255, 0);
+        assertPixel(pixels, 4, 1, 0, 255, 255, 255, 17);
+        assertPixel(pixels, 4, 2, 0, 255, 255, 255, 34);
+        assertPixel(pixels, 4, 3, 0, 255, 255, 255, 51);
+        assertPixel(pixels, 4, 0, 1, 255, 255, 255, 255);
+    }
+
+    @Test
+    public void decodesDxt5Alpha() {
+        // Texel (0, 0) uses index 0, (1, 0) index 1 and (2, 0) index 2
+        ByteBuffer block = bytes(
+                0xFF, 0x00, 0x88, 0x00, 0x00, 0x00, 0x00, 0x00,
+                0xFF, 0xFF, 0xFF, 0xFF, 0x00, 0x00, 0x00, 0x00);
+        ByteBuffer pixels = decode(DXT5, block, 4, 4);
+
+        assertPixel(pixels, 4, 0, 0, 255, 255, 255, 255);
+        assertPixel(pixels, 4, 1, 0, 255, 255, 255, 0);
+        assertPixel(pixels, 4, 2, 0, 255, 255, 255, 218);
+    }
+
+    @Test
+    public void decodesPartialBlocks() {
+        ByteBuffer block = bytes(0x00, 0xF8, 0x1F, 0x00, 0x00, 0x00, 0x00, 0x00);
+        ByteBuffer pixels = decode(DXT1, block, 3, 2);
+
+        assertEquals(3 * 2 * 4, pixels.capacity());
+        for (int y = 0; y < 2; y++)
+            for (int x = 0; x < 3; x++)
+                assertPixel(pixels, 3, x, y, 255, 0, 0, 255);
+    }
+
+    @Test
+    public void flipReversesDecodedRows() {
+        Random random = new Random(7);
+        for (int format : FORMATS) {
+            for (int height : HEIGHTS) {
+                for (int width : new int[] {4, 6, 12}) {
+                    ByteBuffer data = random(random, format, width, height);
+                    ByteBuffer expected = decode(format, data, width, height);
+
+                    flip(format, data, width, height);
+                    ByteBuffer actual = decode(format, data, width, height);
+
+                    int rowBytes = width * 4;
+                    for (int y = 0; y < height; y++)
+                        for (int i = 0; i < rowBytes; i++)
+                            assertEquals("format " + format + ", " + width + "x" + height,
+                                    expected.get(y * rowBytes + i),
+                                    actual.get((height - 1 - y) * rowBytes + i));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void flipTwiceRestoresData() {
+        Random random = new Random(11);
+        for (int format : FORMATS) {
+            for (int height : HEIGHTS) {
+                ByteBuffer data = random(random, format, 8, height);
+                ByteBuffer original = copy(data);
+
+                flip(format, data, 8, height);
+                flip(format, data, 8, height);
+
+                assertEquals(original, data);
+            }
+        }
+    }
+
+    @Test
+    public void flipRespectsPosition() {
+        ByteBuffer data = random(new Random(3), DXT5, 4, 8);
+        ByteBuffer padded = ByteBuffer.allocate(data.capacity() + 5);
+        padded.position(5);
+        padded.put(data.duplicate());
+        padded.position(5);
+
+        flip(DXT5, data, 4, 8);
+        flip(DXT5, padded, 4, 8);
+
+        assertEquals(5, padded.position());
+        assertEquals(data, padded);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsFlippingUnalignedHeights() {
+        flip(DXT1, ByteBuffer.allocate(2 * 8), 4, 6);
+    }
+
+    private static ByteBuffer decode(int format, ByteBuffer source, int width, int height) {
+        ByteBuffer pixels = ByteBuffer.allocate(width * height * 4);
+        S3tcDecoder.decode(format, source, width, height, pixels);
+        return pixels;
+    }
+
+    private static ByteBuffer random(Random random, int format, int width, int height) {
+        byte[] bytes = new byte[((width + 3) / 4) * ((height + 3) / 4) * blockBytes(format)];
+        random.nextBytes(bytes);
+        return ByteBuffer.wrap(bytes);
+    }
+
+    private static ByteBuffer copy(ByteBuffer data) {
+        ByteBuffer copy = ByteBuffer.allocate(data.remaining());
+        copy.put(data.duplicate());
+        copy.flip();
+        return copy;
+    }
+
+    private static ByteBuffer bytes(int... values) {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length);
+        for (int value : values)
+            buffer.put((byte) value);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void assertPixel(ByteBuffer pixels, int width, int x, int y, int r, int g, int b, int a) {
+        int offset = (y * width + x) * 4;
+        assertEquals(r, pixels.get(offset) & 0xFF);
+        assertEquals(g, pixels.get(offset + 1) & 0xFF);
+        assertEquals(b, pixels.get(offset + 2) & 0xFF);
+        assertEquals(a, pixels.get(offset + 3) & 0xFF);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ *     Copyright 2017-2018 Patrick Barron
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.barronpm.sjgf.opengl.draw;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SkylinePackerTest {
+
+    @Test
+    public void firstRectangleGoesBottomLeft() {
+        SkylinePacker packer = new SkylinePacker(64, 64);
+
+        assertEquals(0, packer.pack(10, 20));
+    }
+
+    @Test
+    public void rectanglesFillAlongTheBottom() {
+        SkylinePacker packer = new SkylinePacker(64, 64);
+
+        assertEquals(position(0, 0), packer.pack(32, 10));
+        assertEquals(position(32, 0), packer.pack(32, 10));
+        assertEquals(position(0, 10), packer.pack(32, 10));
+    }
+
+    @Test
+    public void prefersLowestTop() {
+        SkylinePacker packer = new SkylinePacker(32, 64);
+        packer.pack(16, 30);
+        packer.pack(16, 5);
+
+        // Fits next to the short rectangle rather than on top of the tall one
+        assertEquals(position(16, 5), packer.pack(16, 10));
+    }
+
+    @Test
+    public void exactFit() {
+        SkylinePacker packer = new SkylinePacker(32, 32);
+
+        assertEquals(0, packer.pack(32, 32));
+        assertEquals(-1, packer.pack(1, 1));
+    }
+
+    @Test
+    public void rejectsRectanglesThatDoNotFit() {
+        SkylinePacker packer = new SkylinePacker(32, 32);
+
+        assertEquals(-1, packer.pack(33, 1));
+        assertEquals(-1, packer.pack(1, 33));
+
+        packer.pack(32, 30);
+        assertEquals(-1, packer.pack(4, 4));
+        assertEquals(position(0, 30), packer.pack(4, 2));
+    }
+
+    @Test
+    public void randomRectanglesNeverOverlap() {
+        int size = 256;
+        Random random = new Random(17);
+        SkylinePacker packer = new SkylinePacker(size, size);
+        int[][] owners = new int[size][size];
+
+        int placed = 0;
+        for (int i = 1; i <= 2000; i++) {
+            int width = 1 + random.nextInt(24);
+            int height = 1 + random.nextInt(24);
+            long position = packer.pack(width, height);
+            if (position < 0)
+                continue;
+
+            int x = (int) (position >>> 32);
+            int y = (int) position;
+            assertTrue(x >= 0 && y >= 0 && x + width <= size && y + height <= size);
+            for (int row = y; row < y + height; row++) {
+                for (int column = x; column < x + width; column++) {
+                    assertEquals("Rectangle " + i + " overlaps", 0, owners[row][column]);
+                    owners[row][column] = i;
+                }
+            }
+            placed++;
+        }
+
+        assertTrue("Only " + placed + " rectangles placed", placed > 100);
+    }
+
+    private static long position(int x, int y) {
+        return (long) x << 32 | y;
+    }
+}